@@ -0,0 +1,24 @@
+package rest.vertx.Annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Collects the concurrent calls of a handling method and makes them with one call to a batch method of the same class
+ * instead, ie: one bulk query rather than one lookup per request.
+ *
+ * The batch method takes a List of the arguments of each call (a List of Object[] if the handling method has more than
+ * one parameter) and returns a List with the result of each call, in the same order
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Batch {
+
+	// Name of the batch method
+	String value();
+	
+	// Calls in one batch at most
+	String maxSize() default "100";
+	
+	// Milliseconds the first call of a batch waits for others to join it
+	String maxDelay() default "5";
+}
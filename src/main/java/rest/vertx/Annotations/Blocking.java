@@ -10,4 +10,20 @@ public @interface Blocking {
 	
 	// The default vaule for serial in vertx is true, I want to coincide with what they do
 	String serial() default "true";
-}
\ No newline at end of file
+	
+	// Name of a dedicated worker pool to run on instead of the shared Vertx one, so slow routes can't starve the others
+	String pool() default "";
+	
+	// Threads of the pool, if it doesn't exist yet
+	String poolSize() default "20";
+	
+	// Milliseconds a call can take on the pool before we warn about it, if it doesn't exist yet
+	String maxExecuteTime() default "60000";
+	
+	// Run each call on its own virtual thread (Java 21+), falls back to the worker pool on older JVMs
+	String virtual() default "false";
+	
+	// Name of a parameter (ie: the :id path variable) to keep the calls in order by: calls with the same value run one at
+	// a time, in order, calls with different values run in parallel.  Takes the place of serial
+	String key() default "";
+}
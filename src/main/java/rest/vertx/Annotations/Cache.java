@@ -0,0 +1,17 @@
+package rest.vertx.Annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Caches the encoded responses of an idempotent handling method, keyed by the bound arguments
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cache {
+
+	// Seconds a cached response is served without calling the handling method
+	String value() default "60";
+	
+	// Seconds after that the stale response is still served while it's refreshed in the background
+	String staleWhileRevalidate() default "0";
+}
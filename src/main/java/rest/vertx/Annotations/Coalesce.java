@@ -0,0 +1,14 @@
+package rest.vertx.Annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Coalesces concurrent requests with the same arguments: the handling method runs once and every request waiting
+ * on it gets the same response.  Protects what's behind the handling method from a thundering herd on a hot key
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesce {
+
+	String value() default "true";
+}
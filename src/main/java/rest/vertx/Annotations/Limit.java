@@ -0,0 +1,31 @@
+package rest.vertx.Annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Bounds the number of requests of a route being handled at once.  Requests over the limit are turned away right
+ * away (before their body is read) with a Retry-After header, instead of queueing up behind the others.
+ *
+ * The limit adapts to the latency of the route: it grows while latency holds steady and shrinks as soon as requests
+ * start queueing somewhere (ie: on the worker pool or in the database)
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Limit {
+
+	// Requests handled at once to start with (or always, if not adaptive)
+	String value() default "20";
+	
+	String min() default "1";
+	
+	String max() default "1000";
+	
+	// Adapt the limit to the observed latency
+	String adaptive() default "true";
+	
+	// Status of the rejected requests (503 or 429)
+	String status() default "503";
+	
+	// Seconds the rejected clients are told to wait before trying again
+	String retryAfter() default "1";
+}
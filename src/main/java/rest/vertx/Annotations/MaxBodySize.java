@@ -0,0 +1,16 @@
+package rest.vertx.Annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * The largest request body the route accepts, over RestVertx.setMaxBodySize() for everything else.  A request
+ * announcing more in its Content-Length is answered with 413 before its body is read, one sending more is cut off
+ * with 413 as soon as it goes over
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface MaxBodySize {
+
+	// Bytes
+	String value();
+}
@@ -0,0 +1,14 @@
+package rest.vertx.Annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Binds the arguments while the Json request body is still coming in, rather than buffering the whole body first.
+ * For bulk ingest routes, memory stays bounded no matter how large the upload is
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StreamBody {
+
+	String value() default "true";
+}
@@ -0,0 +1,15 @@
+package rest.vertx.Annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Answers with 504 if the handling method hasn't responded in time.  The work still queued for the request is
+ * dropped, and a handling method taking a rest.vertx.models.Deadline parameter sees it cancelled so it can stop early
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Timeout {
+
+	// Milliseconds
+	String value();
+}
@@ -0,0 +1,108 @@
+package rest.vertx;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the calls of a route annotated with @Batch until maxSize of them are waiting or the first one has waited
+ * maxDelay milliseconds, whichever comes first, then hands them to the route all at once so it can make a single call
+ * to the batch method.
+ *
+ * Calls come in from every event loop, so the pending batch is guarded by this.  A batch is flushed on the thread that
+ * filled it up, or on the context of its first call when the timer fires.
+ */
+final class Batcher {
+
+    private final Vertx vertx;
+
+    private final int maxSize;
+
+    private final long maxDelay;
+
+    // Makes the batch call and answers each call in it
+    private final Handler<List<Call>> flush;
+
+    private List<Call> pending = new ArrayList<Call>();
+
+    // The timer of the pending batch, -1 if nothing is pending
+    private long timer = -1;
+
+    Batcher(Vertx vertx, int maxSize, long maxDelay, Handler<List<Call>> flush) {
+        this.vertx = vertx;
+        this.maxSize = Math.max(1, maxSize);
+        // Vertx timers can't be shorter than a millisecond
+        this.maxDelay = Math.max(1, maxDelay);
+        this.flush = flush;
+    }
+
+    /**
+     * Adds a call to the pending batch
+     *
+     * @param _arguments - The bound arguments
+     * @param _resultHandler - Called back on the caller's context with this call's share of the batch result
+     */
+    void add(Object[] _arguments, Handler<Object> _resultHandler) {
+        Call call = new Call(vertx.getOrCreateContext(), _arguments, _resultHandler);
+
+        List<Call> full = null;
+
+        synchronized (this) {
+            pending.add(call);
+
+            if (pending.size() >= maxSize) {
+                full = take();
+            } else if (pending.size() == 1) {
+                timer = vertx.setTimer(maxDelay, this::expire);
+            }
+        }
+
+        if (full != null)
+            flush.handle(full);
+    }
+
+    private void expire(long id) {
+        List<Call> calls;
+
+        synchronized (this) {
+            // That batch filled up and went out already
+            if (id != timer)
+                return;
+
+            calls = take();
+        }
+
+        flush.handle(calls);
+    }
+
+    private List<Call> take() {
+        if (timer != -1)
+            vertx.cancelTimer(timer);
+
+        timer = -1;
+
+        List<Call> toret = pending;
+
+        pending = new ArrayList<Call>();
+
+        return toret;
+    }
+
+    static final class Call {
+
+        final Context context;
+
+        final Object[] arguments;
+
+        final Handler<Object> resultHandler;
+
+        Call(Context context, Object[] arguments, Handler<Object> resultHandler) {
+            this.context = context;
+            this.arguments = arguments;
+            this.resultHandler = resultHandler;
+        }
+    }
+}
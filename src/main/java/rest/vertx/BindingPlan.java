@@ -0,0 +1,430 @@
+package rest.vertx;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.web.RoutingContext;
+import rest.vertx.models.Deadline;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The argument binding for one handling method, worked out once when the route is registered.
+ *
+ * Where the arguments come from (path variables, the whole request body or the fields of a Json body),
+ * which key feeds which parameter and how each raw value is converted to the parameter type are all
+ * resolved up front, so binding a request is a single pass over an array of binders.
+ *
+ * A Deadline parameter isn't bound from the request, RouteHandler hands each request its own.
+ *
+ * Json bodies are streamed once with a Jackson parser, each field handed straight to the reader of its parameter
+ * instead of being parsed into a JsonObject, turned back into a String and parsed again.
+ */
+final class BindingPlan {
+
+    enum Source {
+        // Handling method takes no arguments
+        NONE,
+        // Arguments are sent as path variables, ie: something/:id
+        PATH,
+        // One argument sent in the request body, either as the whole body or as the only field of a Json object
+        BODY_SINGLE,
+        // Several arguments sent as the fields of a Json object in the request body
+        BODY_MULTI
+    }
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Source source;
+
+    // One per parameter, null for the Deadline
+    private final ParamBinder[] binders;
+
+    // The parameter bound from the whole body (BODY_SINGLE)
+    private final ParamBinder bodyBinder;
+
+    // Index of the Deadline parameter, -1 if there's none
+    private final int deadlineIndex;
+
+    // Json field name -> binder, for binding the fields of a Json body as we stream through it
+    private final Map<String, ParamBinder> bindersByKey;
+
+    private final JsonFactory factory;
+
+    private BindingPlan(Source source, ParamBinder[] binders, int deadlineIndex) {
+        this.source = source;
+        this.binders = binders;
+        this.deadlineIndex = deadlineIndex;
+        this.bindersByKey = new HashMap<String, ParamBinder>();
+        this.factory = RestVertx.getObjectMapper().getFactory();
+
+        ParamBinder first = null;
+
+        for (ParamBinder binder : binders) {
+            if (binder == null)
+                continue;
+
+            if (first == null)
+                first = binder;
+
+            if (binder.key != null)
+                bindersByKey.put(binder.key, binder);
+        }
+
+        this.bodyBinder = first;
+    }
+
+    /**
+     * Compiles the binding plan for a handling method
+     *
+     * @param _paramNames - The parameter names (an entry is null if the name wasn't kept by the compiler)
+     * @param _paramTypes - The parameter types
+     * @param _pathParamList - The path variable names in the order they appear in the path
+     * @return
+     */
+    static BindingPlan compile(String[] _paramNames, Class<?>[] _paramTypes, List<String> _pathParamList) {
+        int deadlineIndex = -1;
+
+        for (int i = 0; i < _paramTypes.length; i++) {
+            if (_paramTypes[i] == Deadline.class) {
+                deadlineIndex = i;
+                break;
+            }
+        }
+
+        // The parameters bound from the request
+        int bound = _paramTypes.length - ((deadlineIndex >= 0) ? 1 : 0);
+
+        ParamBinder[] binders = new ParamBinder[_paramTypes.length];
+
+        if (bound == 0)
+            return new BindingPlan(Source.NONE, binders, deadlineIndex);
+
+        // If the program wasn't compiled with -parameters, the names are arg0, arg1... and mean nothing to us
+        boolean namesPresent = _paramNames[0] != null;
+
+        Source source;
+
+        if (!_pathParamList.isEmpty())
+            source = Source.PATH;
+        else if (bound == 1)
+            source = Source.BODY_SINGLE;
+        else
+            source = Source.BODY_MULTI;
+
+        // Position among the bound parameters
+        int position = 0;
+
+        for (int i = 0; i < _paramTypes.length; i++) {
+            if (i == deadlineIndex)
+                continue;
+
+            String key;
+
+            if (source == Source.PATH) {
+                if (namesPresent) {
+                    // We'll match the path variable names to the method parameter names, no matter the path variable order
+                    key = _pathParamList.contains(_paramNames[i]) ? _paramNames[i] : null;
+                } else {
+                    // Assumption: Path variables are in the same order as the parameters
+                    key = (position < _pathParamList.size()) ? _pathParamList.get(position) : null;
+                }
+            } else {
+                // Without the names, we can't match the Json fields to the parameters
+                key = _paramNames[i];
+            }
+
+            binders[i] = new ParamBinder(i, key, _paramTypes[i]);
+
+            position++;
+        }
+
+        return new BindingPlan(source, binders, deadlineIndex);
+    }
+
+    Source getSource() {
+        return source;
+    }
+
+    int size() {
+        return binders.length;
+    }
+
+    /**
+     * @return The index of the Deadline parameter, -1 if there's none
+     */
+    int deadlineIndex() {
+        return deadlineIndex;
+    }
+
+    /**
+     * @param key - A path variable or Json field name
+     * @return The index of the parameter bound from it, or -1 if there's none
+     */
+    int indexOf(String key) {
+        for (ParamBinder binder : binders) {
+            if (binder != null && key.equals(binder.key))
+                return binder.index;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Whether the arguments come from the request body
+     */
+    boolean readsBody() {
+        return source == Source.BODY_SINGLE || source == Source.BODY_MULTI;
+    }
+
+    /**
+     * Binds the arguments of the handling method from the request
+     *
+     * @param rc
+     * @return The arguments in parameter order, or null if the request couldn't be bound (bad request)
+     */
+    Object[] bind(RoutingContext rc) {
+        try {
+            switch (source) {
+                case PATH:
+                    return bindPath(rc);
+                case BODY_SINGLE:
+                    return bindBodySingle(rc);
+                case BODY_MULTI:
+                    return bindBodyMulti(rc);
+                default:
+                    return (binders.length == 0) ? NO_ARGS : new Object[binders.length];
+            }
+        } catch (IOException | IllegalArgumentException | StringIndexOutOfBoundsException e) {
+            // The client sent a value that can't be converted to the parameter type (ie: "abc" for an int) or malformed Json
+            return null;
+        }
+    }
+
+    /**
+     * Binds the arguments from a request body that is still coming in, reading it only once.
+     *
+     * Unlike bind(), a single argument is always read from the whole body: we can't peek at {"<param name>": value}
+     * without buffering the body
+     *
+     * @param body
+     * @return The arguments in parameter order, or null if the request couldn't be bound (bad request)
+     */
+    Object[] bind(InputStream body) {
+        try (JsonParser parser = factory.createParser(body)) {
+            if (source == Source.BODY_MULTI)
+                return bindFields(parser);
+
+            if (parser.nextToken() == null)
+                return null;
+
+            return single(bodyBinder.read(parser));
+        } catch (IOException | IllegalArgumentException | StringIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private Object[] bindPath(RoutingContext rc) throws IOException {
+        Object[] toret = new Object[binders.length];
+
+        for (int i = 0; i < binders.length; i++) {
+            ParamBinder binder = binders[i];
+
+            toret[i] = (binder == null || binder.key == null) ? null : binder.convert(rc.request().getParam(binder.key));
+        }
+
+        return toret;
+    }
+
+    private Object[] bindBodySingle(RoutingContext rc) throws IOException {
+        Buffer body = rc.getBody();
+
+        // Do not trust the client. He may not have sent the json, or it could be malformed.
+        if (body == null)
+            return null;
+
+        ParamBinder binder = bodyBinder;
+
+        try (JsonParser parser = createParser(body)) {
+            JsonToken token = parser.nextToken();
+
+            if (token == null)
+                return null;
+
+            // Only peek at the start of the body: if it's {"<param name>": value}, bind the value
+            if (binder.key != null && token == JsonToken.START_OBJECT && parser.nextToken() == JsonToken.FIELD_NAME
+                    && binder.key.equals(parser.getCurrentName())) {
+                parser.nextToken();
+
+                Object value = binder.read(parser);
+
+                if (parser.nextToken() == JsonToken.END_OBJECT)
+                    return single(value);
+            }
+        }
+
+        // Assumption: User sent all objects in one serialized Json string
+        return single(binder.convert(body.toString()));
+    }
+
+    private Object[] single(Object value) {
+        Object[] toret = new Object[binders.length];
+
+        toret[bodyBinder.index] = value;
+
+        return toret;
+    }
+
+    private Object[] bindBodyMulti(RoutingContext rc) throws IOException {
+        // Assumption: Request body must be in serialized Json format with each argument variable name set as in the arguments
+        Buffer body = rc.getBody();
+
+        // Do not trust the client. He may not have sent the json, or it could be malformed.
+        if (body == null)
+            return null;
+
+        try (JsonParser parser = createParser(body)) {
+            return bindFields(parser);
+        }
+    }
+
+    private Object[] bindFields(JsonParser parser) throws IOException {
+        Object[] toret = new Object[binders.length];
+
+        // One pass over the body: each field goes straight to the binder of the parameter with the same name
+        if (parser.nextToken() != JsonToken.START_OBJECT)
+            return null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            ParamBinder binder = bindersByKey.get(parser.getCurrentName());
+
+            parser.nextToken();
+
+            if (binder == null) {
+                // Not one of our parameters
+                parser.skipChildren();
+            } else {
+                toret[binder.index] = binder.read(parser);
+            }
+        }
+
+        return toret;
+    }
+
+    private JsonParser createParser(Buffer body) throws IOException {
+        ByteBuf buf = body.getByteBuf();
+
+        // Parse straight from the bytes of the body collected, without copying them into a String first
+        if (buf.hasArray())
+            return factory.createParser(buf.array(), buf.arrayOffset() + buf.readerIndex(), buf.readableBytes());
+
+        return factory.createParser(body.getBytes());
+    }
+
+    /**
+     * Resolves the conversion from a raw request value (a String from the path or a value from a Json object)
+     * to the parameter type.  Anything that isn't a String or a primitive is deserialized with Jackson
+     *
+     * @param _type - The parameter type
+     * @return
+     */
+    static Converter converterFor(Class<?> _type) {
+        if (_type == String.class) {
+            return raw -> raw.toString();
+        } else if (_type == int.class) {
+            return raw -> (raw instanceof Number) ? ((Number) raw).intValue() : Integer.parseInt(raw.toString());
+        } else if (_type == long.class) {
+            return raw -> (raw instanceof Number) ? ((Number) raw).longValue() : Long.parseLong(raw.toString());
+        } else if (_type == double.class) {
+            return raw -> (raw instanceof Number) ? ((Number) raw).doubleValue() : Double.parseDouble(raw.toString());
+        } else if (_type == float.class) {
+            return raw -> (raw instanceof Number) ? ((Number) raw).floatValue() : Float.parseFloat(raw.toString());
+        } else if (_type == short.class) {
+            return raw -> (raw instanceof Number) ? ((Number) raw).shortValue() : Short.parseShort(raw.toString());
+        } else if (_type == byte.class) {
+            return raw -> (raw instanceof Number) ? ((Number) raw).byteValue() : Byte.parseByte(raw.toString());
+        } else if (_type == boolean.class) {
+            return raw -> (raw instanceof Boolean) ? raw : Boolean.parseBoolean(raw.toString());
+        } else if (_type == char.class) {
+            return raw -> raw.toString().charAt(0);
+        } else {
+            // Treat it as a JSON Stringified/Serialized Object and try to deserialize/autobind it
+            ObjectReader reader = RestVertx.getReader(_type);
+
+            return raw -> RestVertx.parse(reader, raw.toString());
+        }
+    }
+
+    @FunctionalInterface
+    interface Converter {
+        Object convert(Object raw) throws IOException;
+    }
+
+    static final class ParamBinder {
+
+        final int index;
+
+        // The path variable or Json field name this parameter is bound from
+        final String key;
+
+        final Class<?> type;
+
+        final Converter converter;
+
+        // Reads Json objects/arrays straight into the parameter type (null for Strings and primitives)
+        final ObjectReader reader;
+
+        ParamBinder(int index, String key, Class<?> type) {
+            this.index = index;
+            this.key = key;
+            this.type = type;
+            this.converter = converterFor(type);
+            this.reader = (type == String.class || type.isPrimitive()) ? null : RestVertx.getReader(type);
+        }
+
+        Object convert(Object raw) throws IOException {
+            return (raw == null) ? null : converter.convert(raw);
+        }
+
+        /**
+         * Binds the value the parser is on
+         *
+         * @param parser
+         * @return
+         * @throws IOException
+         */
+        Object read(JsonParser parser) throws IOException {
+            switch (parser.getCurrentToken()) {
+                case VALUE_NULL:
+                    return null;
+                case START_OBJECT:
+                case START_ARRAY:
+                    if (reader != null)
+                        return reader.readValue(parser);
+
+                    // Json sent for a String parameter, hand it the Json text
+                    return convert(parser.readValueAsTree().toString());
+                case VALUE_STRING:
+                    // Could be a JSON Stringified/Serialized Object as well
+                    return convert(parser.getText());
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    return (reader != null) ? reader.readValue(parser) : convert(parser.getNumberValue());
+                case VALUE_TRUE:
+                case VALUE_FALSE:
+                    return (reader != null) ? reader.readValue(parser) : convert(parser.getBooleanValue());
+                default:
+                    throw new JsonParseException(parser, "Unexpected token " + parser.getCurrentToken());
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package rest.vertx;
+
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+
+/**
+ * Feeds the request body to the binding plan as the chunks arrive, for routes annotated with @StreamBody.
+ *
+ * Our Jackson version has no non-blocking parser, so the parser runs on a worker thread and reads from this stream,
+ * which the event loop fills with the chunks of the request.  The request is paused whenever MAX_CHUNKS chunks are
+ * waiting to be parsed and resumed once the parser has caught up, so the memory used by a request body is bounded
+ * no matter how large it is, and binding finishes as soon as the last chunk lands.
+ *
+ * The parsers run on their own pool (RestVertx.STREAM_BODY_POOL), and give their thread back as soon as the client
+ * goes away or sends nothing for IDLE_TIMEOUT, so slow or aborted uploads can't hold threads forever.
+ */
+final class BodyStreamer extends InputStream {
+
+    // Chunks waiting to be parsed before we stop reading from the client
+    static final int MAX_CHUNKS = 16;
+
+    // Milliseconds the parser waits for the next chunk before the request is answered with 408
+    static final long IDLE_TIMEOUT = 30000;
+
+    private final HttpServerRequest request;
+
+    private final HttpServerResponse response;
+
+    private final Context context;
+
+    // Bytes, -1 for no limit
+    private final long maxBodySize;
+
+    // Bytes received so far
+    private long received;
+
+    private final ArrayDeque<Buffer> chunks = new ArrayDeque<Buffer>();
+
+    // The chunk being parsed
+    private ByteBuf current;
+
+    private boolean paused;
+
+    private boolean ended;
+
+    private Throwable failure;
+
+    // The parser is done with the body, anything still coming is dropped
+    private boolean closed;
+
+    private BodyStreamer(RoutingContext rc, Context context, long maxBodySize) {
+        this.request = rc.request();
+        this.response = rc.response();
+        this.context = context;
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * Binds the arguments from the request body as it comes in.  Must be called on the event loop
+     *
+     * @param _v
+     * @param rc
+     * @param _plan
+     * @param _maxBodySize - Bytes the body is cut off at with 413, -1 for no limit
+     * @param _handler - Called on the event loop with the arguments, or null if the request couldn't be bound (bad request)
+     */
+    static void bind(Vertx _v, RoutingContext rc, BindingPlan _plan, long _maxBodySize, Handler<Object[]> _handler) {
+        HttpServerRequest request = rc.request();
+
+        BodyStreamer body = new BodyStreamer(rc, _v.getOrCreateContext(), _maxBodySize);
+
+        request.handler(body::push);
+        request.endHandler(v -> body.end());
+        request.exceptionHandler(body::fail);
+
+        // Vertx only tells the response when the connection closes, not the request
+        RestVertx.onClose(rc, () -> body.fail(new IOException("The client went away")));
+
+        // Requests are independent from each other, no need to parse them one at a time
+        RestVertx.getStreamBodyPool().<Object[]>executeBlocking(
+                body.context,
+                future -> {
+                    try {
+                        future.complete(_plan.bind(body));
+                    } finally {
+                        body.close();
+                    }
+                },
+                null,
+                result -> _handler.handle(result.succeeded() ? result.result() : null));
+    }
+
+    private synchronized void push(Buffer chunk) {
+        if (closed)
+            return;
+
+        received += chunk.length();
+
+        // The parser fails on what it has, and the client is answered right away rather than when it gets there
+        if (maxBodySize >= 0 && received > maxBodySize) {
+            failure = new IOException("Body over " + maxBodySize + " bytes");
+            closed = true;
+            chunks.clear();
+
+            Endpoint.tooLarge(response);
+
+            notifyAll();
+            return;
+        }
+
+        chunks.add(chunk);
+
+        if (chunks.size() >= MAX_CHUNKS && !paused) {
+            paused = true;
+            request.pause();
+        }
+
+        notifyAll();
+    }
+
+    private synchronized void end() {
+        ended = true;
+
+        notifyAll();
+    }
+
+    private synchronized void fail(Throwable e) {
+        failure = e;
+
+        notifyAll();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+
+        return (read(b, 0, 1) == -1) ? -1 : (b[0] & 0xFF);
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+
+        long waitUntil = 0;
+
+        while (current == null || !current.isReadable()) {
+            if (!chunks.isEmpty()) {
+                current = chunks.poll().getByteBuf();
+
+                // The parser caught up, let the client send more
+                if (paused && chunks.size() <= MAX_CHUNKS / 2) {
+                    paused = false;
+                    context.runOnContext(v -> request.resume());
+                }
+            } else if (failure != null) {
+                throw new IOException(failure);
+            } else if (ended || closed) {
+                return -1;
+            } else {
+                long now = System.currentTimeMillis();
+
+                if (waitUntil == 0) {
+                    waitUntil = now + IDLE_TIMEOUT;
+                } else if (now >= waitUntil) {
+                    context.runOnContext(v -> timedOut());
+
+                    throw new SocketTimeoutException("No request body for " + IDLE_TIMEOUT + "ms");
+                }
+
+                try {
+                    wait(waitUntil - now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+
+        int n = Math.min(len, current.readableBytes());
+
+        current.readBytes(b, off, n);
+
+        return n;
+    }
+
+    /**
+     * Answers with 408 and closes the connection, unless the client already went away
+     */
+    private void timedOut() {
+        if (response.ended() || response.closed())
+            return;
+
+        response.putHeader("Connection", "close").setStatusCode(408).end();
+        response.close();
+    }
+
+    @Override
+    public synchronized int available() {
+        return (current == null) ? 0 : current.readableBytes();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed)
+            return;
+
+        closed = true;
+
+        chunks.clear();
+
+        // Let the rest of the body (if any) drain, nobody is going to read it
+        if (paused) {
+            paused = false;
+            context.runOnContext(v -> request.resume());
+        }
+    }
+}
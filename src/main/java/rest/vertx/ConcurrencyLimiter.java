@@ -0,0 +1,148 @@
+package rest.vertx;
+
+import io.vertx.core.Handler;
+import io.vertx.ext.web.RoutingContext;
+import rest.vertx.models.Limit;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for a route annotated with @Limit.  It's the first handler of the route, so a request over the
+ * limit is answered (503 or 429 with Retry-After) before its body is read or anything is queued for it.  There's one
+ * per route, shared by the instances of the route on every event loop, so the limit holds for the whole server.
+ *
+ * The adaptive limit follows the gradient between the long term average latency of the route and the latest one:
+ * while they're close the limit grows by about its square root (the room we leave for queueing), and once requests
+ * take longer than usual the limit shrinks in proportion, down to half per sample.  Samples taken while less than
+ * half the limit is in use are ignored, they say nothing about how much the route can take.  A request that fails
+ * (5xx, ie: a 504 from its @Timeout) has no latency worth learning from, but it's the surest sign the route is
+ * overloaded: the limit backs off by a tenth for each one.
+ */
+final class ConcurrencyLimiter implements Handler<RoutingContext> {
+
+    // Samples the long term average latency is averaged over
+    private static final double LONG_WINDOW = 100;
+
+    // How much slower than the long term average requests can get before the limit shrinks
+    private static final double TOLERANCE = 1.5;
+
+    // How much of each new estimate goes into the limit
+    private static final double SMOOTHING = 0.2;
+
+    // What's left of the limit after a failed request
+    private static final double BACKOFF = 0.9;
+
+    private final Limit limit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // Read on every request, updated under the lock
+    private volatile int current;
+
+    private double estimate;
+
+    // Nanoseconds, 0 until the first sample
+    private double longRtt;
+
+    ConcurrencyLimiter(Limit limit) {
+        this.limit = limit;
+        this.estimate = Math.max(limit.getMin(), Math.min(limit.getMax(), limit.getLimit()));
+        this.current = (int) estimate;
+    }
+
+    @Override
+    public void handle(RoutingContext rc) {
+        if (admit(rc))
+            rc.next();
+    }
+
+    /**
+     * Takes a slot for the request until its response ends, or turns it away
+     *
+     * @param rc
+     * @return false if the request was over the limit and has been answered
+     */
+    boolean admit(RoutingContext rc) {
+        if (!tryAcquire()) {
+            rc.response().putHeader("Retry-After", String.valueOf(limit.getRetryAfter())).setStatusCode(limit.getStatus()).end();
+            return false;
+        }
+
+        long start = System.nanoTime();
+
+        AtomicBoolean released = new AtomicBoolean();
+
+        rc.addBodyEndHandler(v -> {
+            if (released.compareAndSet(false, true))
+                release(System.nanoTime() - start, rc.response().getStatusCode() >= 500);
+        });
+
+        // The client went away, that says nothing about the route
+        RestVertx.onClose(rc, () -> {
+            if (released.compareAndSet(false, true))
+                release(0, false);
+        });
+
+        return true;
+    }
+
+    private boolean tryAcquire() {
+        int n;
+
+        do {
+            n = inFlight.get();
+
+            if (n >= current)
+                return false;
+        } while (!inFlight.compareAndSet(n, n + 1));
+
+        return true;
+    }
+
+    /**
+     * @param rttNanos - How long the request took, 0 if it didn't finish
+     * @param failed - The route answered with a 5xx
+     */
+    private void release(long rttNanos, boolean failed) {
+        int n = inFlight.getAndDecrement();
+
+        if (!limit.isAdaptive())
+            return;
+
+        // Errors come back fast (or at the deadline), don't let them pass for a latency
+        if (failed) {
+            backOff();
+        } else {
+            update(rttNanos, n);
+        }
+    }
+
+    private synchronized void backOff() {
+        estimate = Math.max(limit.getMin(), estimate * BACKOFF);
+
+        current = (int) estimate;
+    }
+
+    private synchronized void update(long rttNanos, int n) {
+        // Not enough load to learn anything
+        if (n < estimate / 2 || rttNanos <= 0)
+            return;
+
+        double rtt = rttNanos;
+
+        longRtt = (longRtt == 0) ? rtt : longRtt + (rtt - longRtt) / LONG_WINDOW;
+
+        // Latency dropped for good (ie: a cold cache warmed up), let the average catch up faster
+        if (longRtt / rtt > 2)
+            longRtt *= 0.95;
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / rtt));
+
+        double next = estimate * gradient + Math.sqrt(estimate);
+
+        estimate = Math.max(limit.getMin(), Math.min(limit.getMax(), estimate * (1 - SMOOTHING) + next * SMOOTHING));
+
+        current = (int) estimate;
+    }
+}
@@ -0,0 +1,167 @@
+package rest.vertx;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * The compiled route of one handling method: its admission control, how it takes the request body and the
+ * RouteHandler that does the rest.  It's either added to a Router as a chain of route handlers, or served straight
+ * from the tree of a RestDispatcher
+ *
+ * Only the routes binding arguments from the body read it, the ones taking path variables or nothing leave it alone.
+ * A body over the route's size limit is turned away from its Content-Length before any of it is read (and before the
+ * client is told to go ahead with 100 Continue), or as soon as it goes over if the client didn't say how long it is.
+ */
+final class Endpoint {
+
+    // Upper case, unknown methods are served as GET like getRouteMethod() does
+    final String httpMethod;
+
+    final String path;
+
+    // null if the route has no concurrency limit
+    private final ConcurrencyLimiter limiter;
+
+    // Binds arguments from the body, whole or streamed
+    private final boolean readsBody;
+
+    // Read the whole body before handling the request (false if it's streamed or not read at all)
+    private final boolean bufferBody;
+
+    // Bytes, -1 for no limit
+    private final long maxBodySize;
+
+    private final RouteHandler handler;
+
+    Endpoint(String httpMethod, String path, ConcurrencyLimiter limiter, boolean readsBody, boolean streamBody,
+            long maxBodySize, RouteHandler handler) {
+        this.httpMethod = normalize(httpMethod);
+        this.path = path;
+        this.limiter = limiter;
+        this.readsBody = readsBody;
+        this.bufferBody = readsBody && !streamBody;
+        this.maxBodySize = maxBodySize;
+        this.handler = handler;
+    }
+
+    private static String normalize(String httpMethod) {
+        String toret = httpMethod.toUpperCase();
+
+        switch (toret) {
+            case "GET":
+            case "POST":
+            case "PUT":
+            case "DELETE":
+            case "OPTIONS":
+                return toret;
+            default:
+                return "GET";
+        }
+    }
+
+    /**
+     * Adds the route to the router of its handling class
+     *
+     * @param _subRouter
+     */
+    void addTo(Router _subRouter) {
+        if (limiter != null)
+            RestVertx.getRouteMethod(httpMethod, path, _subRouter).handler(limiter);
+
+        RestVertx.getRouteMethod(httpMethod, path, _subRouter).handler(rc -> receive(rc, RoutingContext::next));
+
+        RestVertx.getRouteMethod(httpMethod, path, _subRouter).handler(handler);
+    }
+
+    /**
+     * Does what the route handlers added by addTo() do, without going back to the router in between
+     *
+     * @param rc
+     */
+    void handle(RoutingContext rc) {
+        if (limiter != null && !limiter.admit(rc))
+            return;
+
+        receive(rc, handler);
+    }
+
+    /**
+     * Checks the announced size of the body and reads it whole if the route needs it that way, then goes on
+     *
+     * @param rc
+     * @param _next - Called with the request once it can be handled
+     */
+    private void receive(RoutingContext rc, Handler<RoutingContext> _next) {
+        HttpServerRequest request = rc.request();
+
+        String length = request.getHeader("Content-Length");
+
+        if (length != null && maxBodySize >= 0) {
+            long announced;
+
+            try {
+                announced = Long.parseLong(length.trim());
+            } catch (NumberFormatException e) {
+                rc.response().setStatusCode(400).end();
+                return;
+            }
+
+            if (announced > maxBodySize) {
+                tooLarge(rc.response());
+                return;
+            }
+        }
+
+        // A BodyHandler on the main router may have read it already
+        if (!readsBody || rc.getBody() != null) {
+            _next.handle(rc);
+            return;
+        }
+
+        // The client waits for this before sending the body, now we know we want it
+        if ("100-continue".equalsIgnoreCase(request.getHeader("Expect")))
+            rc.response().writeContinue();
+
+        if (!bufferBody) {
+            _next.handle(rc);
+            return;
+        }
+
+        Buffer body = Buffer.buffer();
+
+        request.exceptionHandler(rc::fail);
+        request.handler(chunk -> {
+            if (rc.response().ended())
+                return;
+
+            if (maxBodySize >= 0 && body.length() + chunk.length() > maxBodySize) {
+                tooLarge(rc.response());
+                return;
+            }
+
+            body.appendBuffer(chunk);
+        });
+        request.endHandler(v -> {
+            if (rc.response().ended())
+                return;
+
+            rc.setBody(body);
+
+            _next.handle(rc);
+        });
+    }
+
+    /**
+     * Answers with 413 and closes the connection, so the client can't go on sending the body
+     *
+     * @param response
+     */
+    static void tooLarge(HttpServerResponse response) {
+        response.putHeader("Connection", "close").setStatusCode(413).end();
+        response.close();
+    }
+}
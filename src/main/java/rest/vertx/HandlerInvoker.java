@@ -0,0 +1,64 @@
+package rest.vertx;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Invokes a handling method on its handler instance with the bound arguments.
+ *
+ * Registrars generated by the annotation processor implement this with a direct call to the handling method, the
+ * one the JIT can inline.  Routes found at runtime use {@link #bind(Method, Object)}, a MethodHandle bound to the
+ * handler instance and adapted once, when the route is registered, to take the arguments array and return an Object.
+ * It doesn't check access or wrap the exceptions on each call the way Method.invoke does, but the handle isn't a
+ * constant to the JIT and the arguments are still boxed in the array, so it's about as fast as reflection
+ * (see DispatchTimeTests): use the annotation processor for the fastest dispatch.
+ */
+@FunctionalInterface
+public interface HandlerInvoker {
+
+    /**
+     * Invokes the handling method.  Exceptions thrown by the handling method are passed through as is (not wrapped)
+     *
+     * @param arguments - The arguments in parameter order
+     * @return What the handling method returned
+     * @throws Throwable
+     */
+    Object invoke(Object[] arguments) throws Throwable;
+
+    /**
+     * Binds the handling method to the instance it will be invoked on
+     *
+     * @param _method - The handling method
+     * @param _toInvoke - The handler instance (not used if the method is static)
+     * @return
+     */
+    static HandlerInvoker bind(Method _method, Object _toInvoke) {
+        MethodHandle handle;
+
+        try {
+            handle = MethodHandles.lookup().unreflect(_method);
+        } catch (IllegalAccessException e) {
+            // The handling class isn't public (ie: declared package private in the user's code), try again with access checks off
+            _method.setAccessible(true);
+
+            try {
+                handle = MethodHandles.lookup().unreflect(_method);
+            } catch (IllegalAccessException e1) {
+                throw new IllegalStateException("Unable to access handling method " + _method, e1);
+            }
+        }
+
+        // Static handling methods have no instance to bind to
+        if (!Modifier.isStatic(_method.getModifiers()))
+            handle = handle.bindTo(_toInvoke);
+
+        MethodHandle bound = handle
+                .asSpreader(Object[].class, _method.getParameterCount())
+                .asType(MethodType.methodType(Object.class, Object[].class));
+
+        return arguments -> (Object) bound.invokeExact(arguments);
+    }
+}
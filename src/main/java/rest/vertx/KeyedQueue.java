@@ -0,0 +1,72 @@
+package rest.vertx;
+
+import io.vertx.core.Handler;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs the tasks with the same key one at a time, in the order they came in, while tasks with different keys run
+ * at the same time.  For blocking routes keyed by a parameter, ie: mutations of one account stay in order while
+ * the other accounts go ahead in parallel.
+ *
+ * A task is started with the Runnable to call when it's done, which starts the next task with the same key.  Keys
+ * only hold memory while they have tasks running or waiting.
+ */
+final class KeyedQueue {
+
+    // Stands in for a null key
+    private static final Object NULL_KEY = new Object();
+
+    // The tasks waiting behind the running one, by key.  A key is in here as long as one of its tasks is running
+    private final Map<Object, ArrayDeque<Handler<Runnable>>> waiting = new HashMap<Object, ArrayDeque<Handler<Runnable>>>();
+
+    /**
+     * Runs the task now if no task with the same key is running, or after the ones before it otherwise
+     *
+     * @param _key
+     * @param _task - Called with the Runnable to call once it's done
+     */
+    void run(Object _key, Handler<Runnable> _task) {
+        Object key = (_key == null) ? NULL_KEY : _key;
+
+        synchronized (this) {
+            ArrayDeque<Handler<Runnable>> tasks = waiting.get(key);
+
+            if (tasks != null) {
+                tasks.add(_task);
+                return;
+            }
+
+            waiting.put(key, new ArrayDeque<Handler<Runnable>>());
+        }
+
+        start(key, _task);
+    }
+
+    private void start(Object key, Handler<Runnable> task) {
+        task.handle(() -> {
+            Handler<Runnable> next;
+
+            synchronized (this) {
+                ArrayDeque<Handler<Runnable>> tasks = waiting.get(key);
+
+                next = tasks.poll();
+
+                if (next == null)
+                    waiting.remove(key);
+            }
+
+            if (next != null)
+                start(key, next);
+        });
+    }
+
+    /**
+     * @return The number of keys with tasks running
+     */
+    synchronized int size() {
+        return waiting.size();
+    }
+}
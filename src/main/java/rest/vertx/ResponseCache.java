@@ -0,0 +1,218 @@
+package rest.vertx;
+
+import rest.vertx.models.RestResponse;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The encoded responses of the routes annotated with @Cache, shared by all of them.
+ *
+ * Entries are keyed by the route and the bound arguments, and hold the status, headers and body bytes ready to be
+ * written again.  The cache is bounded by the total size of the entries: it's split in segments, each an LRU with its
+ * own lock and its share of the size, so event loops rarely wait on each other.
+ */
+final class ResponseCache {
+
+    private static final int SEGMENTS = 16;
+
+    // Rough cost of an entry on top of its body and headers
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    ResponseCache(long maxBytes) {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(maxBytes / SEGMENTS);
+        }
+    }
+
+    Entry get(Key key) {
+        return segmentFor(key).get(key);
+    }
+
+    void put(Key key, RestResponse response, long ttlMillis, long staleMillis) {
+        long now = System.currentTimeMillis();
+
+        Entry entry = new Entry(response, now + ttlMillis, now + ttlMillis + staleMillis);
+
+        segmentFor(key).put(key, entry);
+    }
+
+    long size() {
+        long toret = 0;
+
+        for (Segment segment : segments) {
+            toret += segment.size();
+        }
+
+        return toret;
+    }
+
+    private Segment segmentFor(Key key) {
+        // Spread the hash so keys that only differ in the high bits don't all land in the same segment
+        int h = key.hashCode();
+
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Freezes a handling method's result into a response that can be written again, as long as it's a successful one
+     * we can encode up front (not a file, a stream or an error)
+     *
+     * @param toret
+     * @param resultType
+     * @return The encoded response, or null if it can't be cached
+     */
+    static RestResponse encode(Object toret, String resultType) throws IOException {
+        RestResponse encoded = RestVertx.encodeResponse(toret, resultType);
+
+        if (encoded == null || encoded.getStatusCode() < 200 || encoded.getStatusCode() > 299)
+            return null;
+
+        return encoded;
+    }
+
+    /**
+     * A route (from RestVertx.getRouteKey()) plus the arguments bound from a request.  Arguments bound from a Json body need equals()/hashCode()
+     * for requests to share an entry
+     */
+    static final class Key {
+
+        private final String route;
+
+        private final Object[] arguments;
+
+        private final int hash;
+
+        Key(String route, Object[] arguments) {
+            this.route = route;
+            this.arguments = arguments;
+            this.hash = 31 * route.hashCode() + Arrays.deepHashCode(arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+
+            Key other = (Key) o;
+
+            return hash == other.hash && route.equals(other.route) && Arrays.deepEquals(arguments, other.arguments);
+        }
+    }
+
+    static final class Entry {
+
+        final RestResponse response;
+
+        // Until then, the entry is served as is
+        final long expiresAt;
+
+        // Until then, the entry is served while it's refreshed
+        final long staleUntil;
+
+        final long size;
+
+        // One background refresh at a time
+        private boolean refreshing;
+
+        Entry(RestResponse response, long expiresAt, long staleUntil) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+            this.staleUntil = staleUntil;
+
+            long headersSize = 0;
+
+            for (Map.Entry<String, String> header : response.getMultiHeaders()) {
+                headersSize += header.getKey().length() + header.getValue().length();
+            }
+
+            this.size = ENTRY_OVERHEAD + response.getBuffer().length() + headersSize;
+        }
+
+        boolean isFresh(long now) {
+            return now < expiresAt;
+        }
+
+        boolean isUsable(long now) {
+            return now < staleUntil;
+        }
+
+        /**
+         * @return true if the caller should refresh the entry, false if someone already is
+         */
+        synchronized boolean startRefresh() {
+            if (refreshing)
+                return false;
+
+            refreshing = true;
+
+            return true;
+        }
+
+        synchronized void endRefresh() {
+            refreshing = false;
+        }
+    }
+
+    private static final class Segment {
+
+        private final long maxBytes;
+
+        // Access ordered, so the eldest entry is the least recently used
+        private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+        private long bytes;
+
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized Entry get(Key key) {
+            Entry entry = entries.get(key);
+
+            // Past the stale window, nobody can use it anymore
+            if (entry != null && !entry.isUsable(System.currentTimeMillis())) {
+                entries.remove(key);
+                bytes -= entry.size;
+
+                return null;
+            }
+
+            return entry;
+        }
+
+        synchronized void put(Key key, Entry entry) {
+            // Too big for the cache, don't throw everything else out for it
+            if (entry.size > maxBytes)
+                return;
+
+            Entry previous = entries.put(key, entry);
+
+            if (previous != null)
+                bytes -= previous.size;
+
+            bytes += entry.size;
+
+            Iterator<Entry> eldest = entries.values().iterator();
+
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().size;
+                eldest.remove();
+            }
+        }
+
+        synchronized long size() {
+            return bytes;
+        }
+    }
+}
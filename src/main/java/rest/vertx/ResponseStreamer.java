@@ -0,0 +1,245 @@
+package rest.vertx;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.web.RoutingContext;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.stream.BaseStream;
+
+/**
+ * Sends what a handling method returned one element at a time in a chunked response, instead of materializing the
+ * whole payload first.
+ *
+ * Handling methods can return an {@link Iterator}, a {@link java.util.stream.Stream} or a Vertx {@link ReadStream}
+ * (the push based one, ie: a database cursor or an event bus consumer).  Each element is serialized as Json and the
+ * response is either one Json array (the default, or @ResultType("Json")) or one Json document per line
+ * (@ResultType("NDJson")).
+ *
+ * Writes stop whenever the response's write queue is full and pick up again from its drain handler, so a slow client
+ * only ever holds a write queue's worth of elements in memory.  If the client goes away meanwhile, we stop there and
+ * close the Stream (or an Iterator that is AutoCloseable), so the cursor or connection behind it is released.
+ */
+final class ResponseStreamer {
+
+    // Elements are gathered into chunks of about this size before being written, rather than one write per element
+    static final int CHUNK_SIZE = 8192;
+
+    private static final byte[] LINE = { '\n' };
+
+    private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+
+    private final HttpServerResponse response;
+
+    private final boolean ndjson;
+
+    private ByteBuf chunk;
+
+    // Nothing written yet, so there's no separator before the next element
+    private boolean first = true;
+
+    // What to close once the elements are pulled, null if nothing (or already closed)
+    private AutoCloseable source;
+
+    // The client went away, stop pulling
+    private boolean cancelled;
+
+    private ResponseStreamer(RoutingContext rc, boolean ndjson) {
+        this.response = rc.response();
+        this.ndjson = ndjson;
+    }
+
+    static boolean isStreamable(Object entity) {
+        return entity instanceof Iterator || entity instanceof BaseStream || entity instanceof ReadStream;
+    }
+
+    /**
+     * Starts streaming the elements to the client
+     *
+     * @param rc
+     * @param entity - An Iterator, a Stream or a ReadStream
+     * @param resultType - "ndjson" for one Json document per line, a Json array otherwise
+     */
+    @SuppressWarnings("unchecked")
+    static void stream(RoutingContext rc, Object entity, String resultType) {
+        ResponseStreamer streamer = new ResponseStreamer(rc, "ndjson".equals(resultType));
+
+        streamer.start();
+
+        if (entity instanceof ReadStream) {
+            streamer.pipe(rc, (ReadStream<Object>) entity);
+            return;
+        }
+
+        Iterator<?> iterator;
+
+        if (entity instanceof BaseStream) {
+            iterator = ((BaseStream<?, ?>) entity).iterator();
+            streamer.source = (BaseStream<?, ?>) entity;
+        } else {
+            iterator = (Iterator<?>) entity;
+            streamer.source = (entity instanceof AutoCloseable) ? (AutoCloseable) entity : null;
+        }
+
+        // Nothing would resume a pull waiting for the write queue to drain
+        RestVertx.onClose(rc, streamer::cancel);
+
+        streamer.pull(iterator);
+    }
+
+    private void start() {
+        if (ndjson) {
+            response.putHeader("content-type", "application/x-ndjson; charset=utf-8");
+        } else if (!response.headers().contains("content-type")) {
+            response.putHeader("content-type", "application/json; charset=utf-8");
+        }
+
+        // We don't know the length up front
+        response.headers().remove("content-length");
+        response.setChunked(true);
+
+        chunk = Unpooled.buffer(CHUNK_SIZE);
+
+        if (!ndjson)
+            chunk.writeByte('[');
+    }
+
+    /**
+     * Pulls elements from the iterator until the write queue is full, then waits for it to drain
+     *
+     * Note: the iterator is pulled on the event loop, so it shouldn't block.  Return a ReadStream for sources that do
+     */
+    private void pull(Iterator<?> iterator) {
+        try {
+            while (!cancelled && iterator.hasNext()) {
+                append(iterator.next());
+
+                if (chunk.readableBytes() >= CHUNK_SIZE) {
+                    flush();
+
+                    if (response.writeQueueFull()) {
+                        response.drainHandler(v -> {
+                            // Drained once is enough, the next pull sets its own handler if it needs one
+                            response.drainHandler(null);
+                            pull(iterator);
+                        });
+                        return;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            abort(e);
+            return;
+        }
+
+        closeSource();
+
+        if (!cancelled)
+            finish();
+    }
+
+    private void cancel() {
+        cancelled = true;
+
+        closeSource();
+    }
+
+    private void closeSource() {
+        if (source == null)
+            return;
+
+        try {
+            source.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        source = null;
+    }
+
+    /**
+     * Writes elements as the ReadStream pushes them, pausing it while the write queue is full
+     */
+    private void pipe(RoutingContext rc, ReadStream<Object> stream) {
+        stream.exceptionHandler(this::abort);
+
+        stream.endHandler(v -> finish());
+
+        stream.handler(element -> {
+            try {
+                append(element);
+            } catch (IOException e) {
+                stream.handler(null);
+                abort(e);
+                return;
+            }
+
+            // Nobody knows when the next element comes, so don't hold on to this one
+            flush();
+
+            if (response.writeQueueFull()) {
+                stream.pause();
+                response.drainHandler(v -> stream.resume());
+            }
+        });
+
+        // Stop producing if the client goes away
+        RestVertx.onClose(rc, stream::pause);
+    }
+
+    private void append(Object element) throws IOException {
+        if (!ndjson && !first)
+            chunk.writeByte(',');
+
+        first = false;
+
+        if (element == null) {
+            chunk.writeBytes(NULL);
+        } else {
+            RestVertx.writeJson(chunk, element);
+        }
+
+        if (ndjson)
+            chunk.writeBytes(LINE);
+    }
+
+    private void flush() {
+        if (chunk.isReadable()) {
+            response.write(Buffer.buffer(chunk));
+
+            chunk = Unpooled.buffer(CHUNK_SIZE);
+        }
+    }
+
+    private void finish() {
+        if (!ndjson)
+            chunk.writeByte(']');
+
+        response.end(Buffer.buffer(chunk));
+    }
+
+    /**
+     * Sends a 500 if nothing was written yet.  Otherwise the status line is long gone, so all we can do is tell the
+     * client the response is incomplete by dropping the connection
+     */
+    private void abort(Throwable e) {
+        e.printStackTrace();
+
+        closeSource();
+
+        if (response.ended() || response.closed())
+            return;
+
+        if (!response.headWritten()) {
+            response.setChunked(false);
+            response.headers().remove("content-type");
+            response.setStatusCode(500).setStatusMessage("Error: Unable to stream the response").end();
+        } else {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package rest.vertx;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.RoutingContext;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves the routes of any number of handling classes from a single route of the main router.
+ *
+ * RestVertx.register() gives each handling class its own router, and a Vertx router tries its routes one after the
+ * other, each with a regex.  With hundreds of routes, that's hundreds of regexes for the last one.  The dispatcher
+ * puts the base path and path of every route in one tree instead, so a request is matched with one lookup per path
+ * segment no matter how many routes there are:
+ *
+ * RestDispatcher dispatcher = RestDispatcher.create(vertx)
+ *     .register(new Choirs())
+ *     .register(new Singers());
+ *
+ * router.route().handler(dispatcher);
+ *
+ * Requests that don't match any route go on to the next route of the router.  Paths with wildcards or regexes aren't
+ * supported, register those classes with RestVertx.register().
+ */
+public class RestDispatcher implements Handler<RoutingContext> {
+
+    private final Vertx vertx;
+
+    private final RouteTree routes = new RouteTree();
+
+    private RestDispatcher(Vertx vertx) {
+        this.vertx = vertx;
+    }
+
+    public static RestDispatcher create(Vertx _v) {
+        return new RestDispatcher(_v);
+    }
+
+    /**
+     * Adds the routes of a handling class, under its base path
+     *
+     * @param _toInvoke - The handler instance
+     * @return
+     */
+    public <T> RestDispatcher register(T _toInvoke) {
+        String basePath = RestVertx.getBasePathValue(_toInvoke.getClass());
+
+        RestVertx.addRoutes(_toInvoke, (info, invoker) -> {
+            Endpoint endpoint = RestVertx.compile(vertx, info, invoker);
+
+            routes.add(basePath + ((endpoint.path == null) ? "" : endpoint.path), endpoint);
+        });
+
+        return this;
+    }
+
+    @Override
+    public void handle(RoutingContext rc) {
+        String path = rc.normalisedPath();
+
+        // Mounted on a sub router, the mount point isn't part of our paths
+        if (rc.mountPoint() != null && path.startsWith(rc.mountPoint()))
+            path = path.substring(rc.mountPoint().length());
+
+        List<String> values = new ArrayList<String>(4);
+
+        RouteTree.Leaf leaf = routes.find(rc.request().method().name(), path, values);
+
+        if (leaf == null) {
+            rc.next();
+            return;
+        }
+
+        try {
+            for (int i = 0; i < leaf.paramNames.length; i++) {
+                // Decoded, like the Vertx router does
+                rc.request().params().add(leaf.paramNames[i], URLDecoder.decode(values.get(i), "UTF-8"));
+            }
+        } catch (IllegalArgumentException | UnsupportedEncodingException e) {
+            rc.response().setStatusCode(400).end();
+            return;
+        }
+
+        leaf.endpoint.handle(rc);
+    }
+}
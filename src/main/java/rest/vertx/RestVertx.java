@@ -1,52 +1,130 @@
 package rest.vertx;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
-import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
 import io.vertx.core.Future;
+import io.vertx.core.MultiMap;
 import io.vertx.core.Vertx;
-import io.vertx.core.json.JsonObject;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
 import io.vertx.ext.web.Route;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
-import io.vertx.ext.web.handler.BodyHandler;
 import rest.vertx.Annotations.Base;
 import rest.vertx.Annotations.NoParam;
 import rest.vertx.Annotations.RestIgnore;
+import rest.vertx.models.Batch;
 import rest.vertx.models.Blocking;
+import rest.vertx.models.Cache;
+import rest.vertx.models.Limit;
 import rest.vertx.models.RequestInfo;
 import rest.vertx.models.RestResponse;
+import rest.vertx.models.WorkerPoolMetrics;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.lang.reflect.Type;
 import java.net.URLDecoder;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 public class RestVertx {
 
+    // Default total size of the cached responses
+    static final long DEFAULT_RESPONSE_CACHE_SIZE = 64L * 1024 * 1024;
+
+    // Responses of the routes annotated with Cache, shared by all of them
+    private static volatile ResponseCache responseCache = new ResponseCache(DEFAULT_RESPONSE_CACHE_SIZE);
+
+    // Default largest body a route reads whole
+    static final long DEFAULT_MAX_BODY_SIZE = 10L * 1024 * 1024;
+
+    private static volatile long maxBodySize = DEFAULT_MAX_BODY_SIZE;
+
+    // Dedicated worker pools by name, for the blocking routes that name one
+    private static final ConcurrentHashMap<String, WorkerPool> workerPools = new ConcurrentHashMap<String, WorkerPool>();
+
+    // Name the virtual thread pool goes by in the metrics
+    public static final String VIRTUAL_THREAD_POOL = "virtual";
+
+    // Name of the dedicated pool the streamed request bodies (StreamBody) are parsed on
+    public static final String STREAM_BODY_POOL = "streamBody";
+
+    static final int DEFAULT_STREAM_BODY_POOL_SIZE = 16;
+
+    static final long DEFAULT_MAX_EXECUTE_TIME = 60000;
+
+    private static volatile boolean virtualThreads;
+
+    private static volatile WorkerPool virtualThreadPool;
+
+    private static volatile boolean virtualThreadsUnavailable;
+
+    // The queues of the keyed routes by route, shared by the instances compiled for each event loop
+    private static final ConcurrentHashMap<String, KeyedQueue> keyedQueues = new ConcurrentHashMap<String, KeyedQueue>();
+
+    // The admission control of the routes with a Limit by route, shared the same way
+    private static final ConcurrentHashMap<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<String, ConcurrencyLimiter>();
+
+    // The calls in flight of the routes that coalesce them by route, shared the same way
+    private static final ConcurrentHashMap<String, SingleFlight> singleFlights = new ConcurrentHashMap<String, SingleFlight>();
+
+    // Key of the actions to run when the connection closes, in the routing context
+    private static final String CLOSE_ACTIONS = "rest.vertx.closeActions";
+
     public static <T> void register(Vertx _v, Router _r, T _toInvoke) {
+        Router subRouter = createSubRouter(_v);
+
+        addRoutes(_toInvoke, (info, invoker) -> route(_v, subRouter, info, invoker));
+
+        mount(_r, getBasePathValue(_toInvoke.getClass()), subRouter);
+    }
+
+    /**
+     * Hands each route of a handling class to the target
+     *
+     * @param _toInvoke - The handler instance
+     * @param _target
+     */
+    static <T> void addRoutes(T _toInvoke, RouteTarget _target) {
         @SuppressWarnings("unchecked")
         Class<T> sub = (Class<T>) _toInvoke.getClass();
 
-        Router mainRouter = _r;
+        // The routes of instances of the same class (ie: one per event loop) share their state by it
+        RouteTarget target = (info, invoker) -> {
+            info.setHandlerClass(sub);
 
-        Router subRouter = Router.router(_v);
+            _target.route(info, invoker);
+        };
 
-        // So we can use getBodyAsJson() and/or getBodyAsString() in our handling methods
-        subRouter.route().handler(BodyHandler.create());
+        // If the annotation processor generated a registrar for this class, let it wire the routes without reflection
+        RouteRegistrar<T> registrar = getRegistrar(sub);
 
-        String basePath = getBasePathValue(sub);
+        if (registrar != null) {
+            registrar.register(target, _toInvoke);
+            return;
+        }
 
         Object toInvoke = _toInvoke;
 
@@ -58,189 +136,310 @@ public class RestVertx {
             if (ignore)
                 continue;
 
-            String path = getPath(m);
-
             // If path isn't set, skip this method right away
-            if (path == null)
+            if (getPath(m) == null)
                 continue;
 
-            String httpMethod = getHttpMethod(m);
+            RequestInfo info = getRequestInfo(m);
+
+            if (info.getBatch() != null) {
+                info.getBatch().setInvoker(HandlerInvoker.bind(getBatchMethod(sub, info.getBatch().getMethod()), toInvoke));
+            }
+
+            // Bind the handling method to this handler instance once, rather than looking it up on each request
+            target.route(info, HandlerInvoker.bind(m, toInvoke));
+        }
+    }
+
+    /**
+     * Creates the router that holds the routes of one handling class
+     *
+     * @param _v
+     * @return
+     */
+    public static Router createSubRouter(Vertx _v) {
+        // Each route reads the body itself, if it has one to read
+        return Router.router(_v);
+    }
 
-            HashMap<Integer, Parameter> paramOrder = new HashMap<Integer, Parameter>();
+    /**
+     * Mounts the router of a handling class on the main router under its base path
+     *
+     * @param _r - The main router
+     * @param _basePath - The base path (@Base value), or null
+     * @param _subRouter
+     */
+    public static void mount(Router _r, String _basePath, Router _subRouter) {
+        _r.mountSubRouter(getBasePathValue(_basePath), _subRouter);
+    }
 
-            loadOrder(paramOrder, m);
+    /**
+     * Registers the route of one handling method on the router of its handling class
+     *
+     * @param _v
+     * @param _subRouter - The router of the handling class
+     * @param _info - What we know about the handling method (read from its annotations or generated at build time)
+     * @param _invoker - Invokes the handling method on the handler instance
+     */
+    public static void route(Vertx _v, Router _subRouter, RequestInfo _info, HandlerInvoker _invoker) {
+        compile(_v, _info, _invoker).addTo(_subRouter);
+    }
 
-            HashMap<Integer, Class<?>> paramTypes = new HashMap<Integer, Class<?>>();
+    /**
+     * Works out everything about the route of one handling method, ready to be added to a router or a RestDispatcher
+     *
+     * @param _v
+     * @param _info
+     * @param _invoker
+     * @return
+     */
+    static Endpoint compile(Vertx _v, RequestInfo _info, HandlerInvoker _invoker) {
+        String path = getPath(_info.getPath());
+
+        String httpMethod = _info.getHttpMethod();
+
+        if (httpMethod == null) {
+            // Assumption: if http method is not specified in annotation, http method might be embedded in the actual method name
+            // check if the name of the actual method is an http method
+            httpMethod = parseMethodName(_info.getMethodName());
+        }
 
-            loadParamTypes(paramTypes, m);
+        // Assumption: path and/or base path and the http method has been set (method defaults to GET)
 
-            Parameter[] params = m.getParameters();
+        String resultType = (_info.getResultType() == null) ? null : _info.getResultType().toLowerCase();
 
-            ArrayList<String> paramNames = new ArrayList<String>();
+        String[] cors = getCORS(_info.getCors());
 
-            for (int i = 0; i < params.length; i++) {
-                paramNames.add(m.getParameters()[i].getName());
-            }
+        Blocking blocking = (_info.getBlocking() == null) ? new Blocking() : _info.getBlocking();
 
-            if (httpMethod == null) {
-                // Assumption: if http method is not specified in annotation, http method might be embedded in the actual method name
-                // check if the name of the actual method is an http method
-                httpMethod = parseMethodName(m);
+        // Handling methods can return an object to send as Json, resolve its writer now rather than on the first request
+        if (isEntityType(_info.getReturnType())) {
+            getWriter(_info.getReturnType());
+        }
+        
+        ArrayList<String> pathParamList = new ArrayList<String>();
+        
+        // If the path was something/:id, then 'id' would be added to the pathParamList
+        setArgumentNameIndex(pathParamList, path);
+
+        // Work out where each argument comes from and how it's converted once, rather than on every request
+        BindingPlan bindingPlan = BindingPlan.compile(_info.getParamNames(), _info.getParamTypes(), pathParamList);
+
+        // Streamed bodies are bound as they come in, every other route that binds from the body gets it whole first.
+        // Routes that only take path variables (or nothing) never read it
+        boolean streamBody = _info.isStreamBody() && bindingPlan.readsBody();
+
+        long maxBody = (_info.getMaxBodySize() > 0) ? _info.getMaxBodySize() : (streamBody ? -1 : maxBodySize);
+
+        String route = getRouteKey(_info, httpMethod, path);
+
+        // Turn away what's over the limit before the body is read.  One limit for the route, however many event loops serve it
+        ConcurrencyLimiter limiter = (_info.getLimit() == null) ? null
+                : limiters.computeIfAbsent(route, r -> new ConcurrencyLimiter(_info.getLimit()));
+
+        RouteHandler handler = new RouteHandler(_v, _invoker, route, bindingPlan, blocking, cors,
+                resultType, streamBody, _info.getCache(), _info.isCoalesce(), _info.getBatch(), _info.getTimeout(), maxBody);
+
+        return new Endpoint(httpMethod, path, limiter, bindingPlan.readsBody(), streamBody, maxBody, handler);
+    }
+
+    /**
+     * Names a route the same way for every instance of its handling class, so the instances compiled for different
+     * event loops can share what has to hold across all of them
+     */
+    static String getRouteKey(RequestInfo _info, String _httpMethod, String _path) {
+        String handlerClass = (_info.getHandlerClass() == null) ? "" : _info.getHandlerClass().getName();
+
+        return handlerClass + "#" + _info.getMethodName() + " " + _httpMethod.toUpperCase() + " " + _path;
+    }
+
+    /**
+     * @param _route - From getRouteKey()
+     * @return The queue that keeps the calls of a keyed route in order, the same for all the instances of the route
+     */
+    static KeyedQueue getKeyedQueue(String _route) {
+        return keyedQueues.computeIfAbsent(_route, route -> new KeyedQueue());
+    }
+
+    /**
+     * @param _route - From getRouteKey()
+     * @return The calls in flight of a route that coalesces them, the same for all the instances of the route
+     */
+    static SingleFlight getSingleFlight(String _route) {
+        return singleFlights.computeIfAbsent(_route, route -> new SingleFlight());
+    }
+
+    /**
+     * Reads everything we need to know about a handling method from its annotations and parameters
+     *
+     * @param _method
+     * @return
+     */
+    static RequestInfo getRequestInfo(Method _method) {
+        RequestInfo requestInfo = new RequestInfo(getBlocking(_method));
+
+        requestInfo.setMethodName(_method.getName());
+        requestInfo.setPath(getPath(_method));
+        requestInfo.setHttpMethod(getHttpMethod(_method));
+        requestInfo.setResultType(getResultType(_method));
+
+        if (_method.isAnnotationPresent(rest.vertx.Annotations.CORS.class)) {
+            rest.vertx.Annotations.CORS[] cors = _method.getAnnotationsByType(rest.vertx.Annotations.CORS.class);
+
+            String[] values = new String[cors.length];
+
+            for (int i = 0; i < cors.length; i++) {
+                values[i] = cors[i].value();
             }
 
-            // Assumption: path and/or base path and the http method has been set (method defaults to GET)
+            requestInfo.setCors(values);
+        }
 
-            String resultType = getResultType(m);
-            
-            ArrayList<String> pathParamList = new ArrayList<String>();
-            
-            RequestInfo requestInfo = new RequestInfo(getBlocking(m));
-            
-            // If the path was something/:id, then 'id' would be added to the pathParamList
-            setArgumentNameIndex(pathParamList, path);
-
-            getRouteMethod(httpMethod, path, subRouter).handler(rc -> {
-                
-                // Specifies whether we should parse the request body for the specified variables
-                boolean parseRequestBody = false;
-
-                // Store the argument values in a map since they're not guaranteed to be in order
-                HashMap<String, Object> argValues = new HashMap<String, Object>();
-                ArrayList<Object> argValueList = new ArrayList<Object>();
-                
-                // If there is more than one parameter for this method, parse the arguments sent via request
-                if (paramOrder.size() > 0) {
-                	
-	                if (!pathParamList.isEmpty()) {
-	                    // Assumption: the request body is not being used, argument(s) sent in path params
-	                    Iterator<String> iter = pathParamList.listIterator();
-	
-	                    while (iter.hasNext()) {
-	                        String key = iter.next();
-	
-	                        Object val = rc.request().getParam(key);
-	
-	                        argValues.put(key, val);
-	
-	                        argValueList.add(val);
-	                    }
-	                } else if (paramOrder.size() == 1) {
-	                	
-	                    JsonObject jObject = rc.getBodyAsJson();
-	                    
-	                    // Do not trust the client. He may not have sent the json, or it could be malformed.
-	                    // In this case, send an empty response with status code = 400 (bad request)
-	                    if (jObject == null) {
-	                        rc.response().setStatusCode(400).end();
-	                        return;
-	                    }
-	                    
-	                    if (jObject.size() == 1 && jObject.containsKey(paramNames.get(0))) {
-	                        //Object val = toString(jObject.getValue(paramNames.get(0)));
-	
-	                        argValues.put(paramNames.get(0), jObject.getValue(paramNames.get(0)));
-	
-	                        argValueList.add(jObject.getValue(paramNames.get(0)));
-	                    } else {
-	                    	// One method parameter is set
-	                        // Assumption: User sent all objects in one serialized Json string
-	                        String val = rc.getBodyAsString();
-	
-	                        argValues.put("__serialized", val);
-	
-	                        argValueList.add(val);
-	
-	                        parseRequestBody = true;
-	                    }
-	                } else if (paramOrder.size() > 1) {
-	                    // There weren't any path variables set and there is more than one method parameter,
-	                    // therefore, we'll try parsing the request body and deserialize/reserialize
-	                    // Assumption: Request body must be in serialized Json format with each argument variable name set as in the arguments
-	
-	                    // Deserialize body into Json Object
-	                    JsonObject jObject = rc.getBodyAsJson();
-	                    
-	                    // Do not trust the client. He may not have sent the json, or it could be malformed.
-	                    // In this case, send an empty response with status code = 400 (bad request)
-	                    if (jObject == null) {
-	                        rc.response().setStatusCode(400).end();
-	                        return;
-	                    }
-	
-	                    Iterator<HashMap.Entry<String, Object>> iter = jObject.iterator();
-	
-	                    while (iter.hasNext()) {
-	                        Entry<String, Object> current = iter.next();
-	
-	                        String key = current.getKey();
-	
-	                        Object val = current.getValue().toString();
-	
-	                        argValues.put(key, val);
-	
-	                        argValueList.add(val);
-	                    }
-	
-	                    parseRequestBody = true;
-	                }
-                }
+        Parameter[] params = _method.getParameters();
 
-                // Places the path variable/arguments in order specified by the parameter
-                Object[] arguments = buildArgs(paramOrder, paramTypes, argValues, argValueList, parseRequestBody);
-
-                final Object[] arguments_f = arguments;
-
-                // This can be pretty long. Since we have a grip on the Vertx object we can use it to create a blocking function
-                	// Only use blocking if blocking is indicated in the handling method's blocking annotation
-                if (requestInfo.getBlocking().isBlocking()) {
-	                _v.executeBlocking(
-	                        objectFuture -> {
-	                        	invokeMethod(m, toInvoke, arguments_f, objectFuture);
-	                        },
-	                        requestInfo.getBlocking().isSerial(),
-	                        objectAsyncResult -> {
-	                            Object toret = objectAsyncResult.result();
-	                            
-	                            invokeResponse(rc, m, toret, resultType);
-	                        }
-                	);
-                } else {
-                	// Non-blocking
-                	Object toret = invokeMethod(m, toInvoke, arguments_f, null);
-                    
-                    invokeResponse(rc, m, toret, resultType);               	
-                }
-            });
+        String[] paramNames = new String[params.length];
+
+        for (int i = 0; i < params.length; i++) {
+            // Only trust the name if the program was compiled with -parameters, otherwise it's just arg0, arg1...
+            paramNames[i] = params[i].isNamePresent() ? params[i].getName() : null;
         }
 
-        mainRouter.mountSubRouter((basePath == null) ? "/" : basePath, subRouter);
+        requestInfo.setParamNames(paramNames);
+        requestInfo.setParamTypes(_method.getParameterTypes());
+        requestInfo.setReturnType(_method.getReturnType());
+
+        if (_method.isAnnotationPresent(rest.vertx.Annotations.Cache.class)) {
+            rest.vertx.Annotations.Cache cache = _method.getAnnotation(rest.vertx.Annotations.Cache.class);
+
+            requestInfo.setCache(new Cache(Long.parseLong(cache.value()), Long.parseLong(cache.staleWhileRevalidate())));
+        }
+
+        if (_method.isAnnotationPresent(rest.vertx.Annotations.Coalesce.class)) {
+            requestInfo.setCoalesce(_method.getAnnotation(rest.vertx.Annotations.Coalesce.class).value().toLowerCase().equals("true"));
+        }
+
+        if (_method.isAnnotationPresent(rest.vertx.Annotations.Batch.class)) {
+            rest.vertx.Annotations.Batch batch = _method.getAnnotation(rest.vertx.Annotations.Batch.class);
+
+            // The invoker is bound to the handler instance by register()
+            requestInfo.setBatch(new Batch(batch.value(), Integer.parseInt(batch.maxSize()), Long.parseLong(batch.maxDelay()), null));
+        }
+
+        if (_method.isAnnotationPresent(rest.vertx.Annotations.Limit.class)) {
+            rest.vertx.Annotations.Limit limit = _method.getAnnotation(rest.vertx.Annotations.Limit.class);
+
+            requestInfo.setLimit(new Limit(Integer.parseInt(limit.value()), Integer.parseInt(limit.min()), Integer.parseInt(limit.max()),
+                    limit.adaptive().toLowerCase().equals("true"), Integer.parseInt(limit.status()), Long.parseLong(limit.retryAfter())));
+        }
+
+        if (_method.isAnnotationPresent(rest.vertx.Annotations.Timeout.class)) {
+            requestInfo.setTimeout(Long.parseLong(_method.getAnnotation(rest.vertx.Annotations.Timeout.class).value()));
+        }
+
+        if (_method.isAnnotationPresent(rest.vertx.Annotations.MaxBodySize.class)) {
+            requestInfo.setMaxBodySize(Long.parseLong(_method.getAnnotation(rest.vertx.Annotations.MaxBodySize.class).value()));
+        }
+
+        if (_method.isAnnotationPresent(rest.vertx.Annotations.StreamBody.class)) {
+            requestInfo.setStreamBody(_method.getAnnotation(rest.vertx.Annotations.StreamBody.class).value().toLowerCase().equals("true"));
+        }
+
+        return requestInfo;
+    }
+
+    /**
+     * Runs the action if the connection closes before the response is sent.  A response only has one close handler,
+     * so everyone who needs to know goes through here
+     *
+     * @param rc
+     * @param _action
+     */
+    static void onClose(RoutingContext rc, Runnable _action) {
+        List<Runnable> actions = rc.get(CLOSE_ACTIONS);
+
+        if (actions == null) {
+            List<Runnable> toRun = new ArrayList<Runnable>();
+
+            rc.put(CLOSE_ACTIONS, toRun);
+            rc.response().closeHandler(v -> toRun.forEach(Runnable::run));
+
+            actions = toRun;
+        }
+
+        actions.add(_action);
+    }
+
+    /**
+     * Finds the batch method named by a Batch annotation: a public method of the handling class taking a List
+     *
+     * @param _sub
+     * @param _name
+     * @return
+     */
+    static Method getBatchMethod(Class<?> _sub, String _name) {
+        for (Method m : _sub.getMethods()) {
+            if (m.getName().equals(_name) && m.getParameterCount() == 1 && m.getParameterTypes()[0].isAssignableFrom(List.class))
+                return m;
+        }
+
+        throw new IllegalArgumentException("No public method " + _name + "(List) in " + _sub.getName() + " to batch the calls with");
+    }
+
+    /**
+     * Finds the registrar generated by the annotation processor for a handling class, if any
+     *
+     * @param _sub
+     * @return The registrar, or null if none was generated
+     */
+    @SuppressWarnings("unchecked")
+    static <T> RouteRegistrar<T> getRegistrar(Class<T> _sub) {
+        try {
+            Class<?> registrar = Class.forName(_sub.getName() + RouteRegistrar.SUFFIX, true, _sub.getClassLoader());
+
+            return (RouteRegistrar<T>) registrar.getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            e.printStackTrace();
+            return null;
+        }
     }
     
-    static void invokeResponse(RoutingContext rc, Method m, Object toret, String resultType) {
+    static void invokeResponse(RoutingContext rc, String[] _corsAllowedIPs, Object toret, String resultType) {
     	// Handle CORS stuff here (only if set individually on the method via annotation)
-        String[] _corsAllowedIPs = getCORS(m);
-        
         if (_corsAllowedIPs != null && _corsAllowedIPs.length > 0) {
             CORS.allow(rc, _corsAllowedIPs);
         }
         
         // Combine errors
-        if (toret == null || !(toret instanceof RestResponse)){
+        if (toret == null){
 
-        	// Handling function didn't return a RestResponse object, return an appropriate error message
+        	// Handling function didn't return anything, return an appropriate error message
             rc.response().setStatusCode(500).setStatusMessage("Error: Function didn't return a RestResponse object").end();
             
             // We don't "have" to throw an exception, a 500 may suffice and client may log error and message in their logs
 //                              new RuntimeException("The return type of a REST function must be a RestResponse");
-        }else {
+        } else if (!(toret instanceof RestResponse)) {
+        	
+        	// Handling function returned the object itself, send it as Json
+        	sendEntity(rc, toret, resultType);
+        } else {
         	
         	// Put the custom headers first, if any
         	putHeaders(((RestResponse) toret).getHeaders(), rc);
         	
+        	addHeaders(((RestResponse) toret).getMultiHeaders(), rc);
+        	
         	// PUt the custom status code/message, if any
         	putStatus((RestResponse) toret, rc);
         	
-            if (resultType != null) {
+        	if (((RestResponse) toret).getBuffer() != null && !"file".equals(resultType)) {
+        		
+        		sendBuffer(rc, ((RestResponse) toret).getBuffer(), resultType);
+        	} else if (((RestResponse) toret).getEntity() != null && !"file".equals(resultType)) {
+        		
+        		sendEntity(rc, ((RestResponse) toret).getEntity(), resultType);
+        	} else if (resultType != null) {
 
                 if (resultType.equals("file")) {
                 	
@@ -268,11 +467,172 @@ public class RestVertx {
             }
         }
     }
+
+    /**
+     * Encodes a handling method's result up front: the status, the headers and the body bytes, ready to be written as
+     * is by invokeResponse().  Lets blocking routes do the encoding on the worker, and cached routes write the same
+     * response again
+     *
+     * @param toret
+     * @param resultType
+     * @return The encoded response, or null if it can't be encoded up front (a file, a stream, or something
+     *         invokeResponse() has to deal with itself)
+     * @throws IOException if the object can't be serialized
+     */
+    static RestResponse encodeResponse(Object toret, String resultType) throws IOException {
+        if (toret == null || "file".equals(resultType))
+            return null;
+
+        RestResponse encoded;
+
+        if (!(toret instanceof RestResponse)) {
+            if (ResponseStreamer.isStreamable(toret) || toret instanceof Future || toret instanceof CompletionStage)
+                return null;
+
+            encoded = RestResponse.binary(toBuffer(toret), 200);
+
+            encoded.addHeader("content-type", "application/json; charset=utf-8");
+
+            return encoded;
+        }
+
+        RestResponse response = (RestResponse) toret;
+
+        Buffer body;
+        String contentType = null;
+
+        if (response.getBuffer() != null) {
+            body = response.getBuffer();
+        } else if (response.getEntity() != null) {
+            if (ResponseStreamer.isStreamable(response.getEntity()))
+                return null;
+
+            body = toBuffer(response.getEntity());
+            contentType = "application/json; charset=utf-8";
+        } else if ("json".equals(resultType)) {
+            if (response.getBody() == null)
+                return null;
+
+            body = Buffer.buffer(response.getBody());
+        } else if (resultType == null) {
+            body = Buffer.buffer((response.getBody() != null) ? response.getBody() : " ");
+            contentType = "text/plain";
+        } else {
+            return null;
+        }
+
+        encoded = RestResponse.binary(body, response.getStatusCode());
+
+        encoded.setStatusMessage(response.getStatusMessage());
+
+        MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+
+        if (response.getHeaders() != null)
+            headers.setAll(response.getHeaders());
+
+        if (response.getMultiHeaders() != null)
+            headers.addAll(response.getMultiHeaders());
+
+        // Same defaults invokeResponse() would have used
+        if (contentType != null && !headers.contains("content-type"))
+            headers.set("content-type", contentType);
+
+        encoded.setMultiHeaders(headers);
+
+        return encoded;
+    }
+
+    /**
+     * Serializes an object with the cached writer for its type straight into the response buffer and sends it as Json
+     *
+     * @param rc
+     * @param entity
+     * @param resultType
+     */
+    static void sendEntity(RoutingContext rc, Object entity, String resultType) {
+        
+        // Iterators, Streams and ReadStreams are sent one element at a time
+        if (ResponseStreamer.isStreamable(entity)) {
+            ResponseStreamer.stream(rc, entity, resultType);
+            return;
+        }
+
+        Buffer buffer;
+
+        try {
+            buffer = toBuffer(entity);
+        } catch (IOException e) {
+            e.printStackTrace();
+
+            rc.response().setStatusCode(500).setStatusMessage("Error: Unable to serialize the response").end();
+            return;
+        }
+
+        // Set the header for json content - will override any custom header for content-type if the result type is json
+        if ("json".equals(resultType) || !rc.response().headers().contains("content-type")) {
+            rc.response().putHeader("content-type", "application/json; charset=utf-8");
+        }
+
+        // We know the exact length, so the response won't be chunked
+        rc.response().putHeader("content-length", String.valueOf(buffer.length()));
+
+        rc.response().end(buffer);
+    }
+
+    /**
+     * Sends a binary body as is.  Vertx writes a duplicate of the underlying ByteBuf, so the bytes aren't copied and
+     * the same Buffer can be sent again
+     *
+     * @param rc
+     * @param buffer
+     * @param resultType
+     */
+    static void sendBuffer(RoutingContext rc, Buffer buffer, String resultType) {
+
+        if ("json".equals(resultType)) {
+            // Pre-encoded Json
+            rc.response().putHeader("content-type", "application/json; charset=utf-8");
+        } else if (!rc.response().headers().contains("content-type")) {
+            rc.response().putHeader("content-type", "application/octet-stream");
+        }
+
+        rc.response().putHeader("content-length", String.valueOf(buffer.length()));
+
+        rc.response().end(buffer);
+    }
+
+    /**
+     * Serializes an object as Json into a Buffer, without going through a String
+     *
+     * @param o
+     * @return
+     * @throws IOException
+     */
+    static Buffer toBuffer(Object o) throws IOException {
+        ByteBuf buf = Unpooled.buffer();
+
+        writeJson(buf, o);
+
+        return Buffer.buffer(buf);
+    }
+
+    /**
+     * Appends an object serialized as Json to a ByteBuf
+     *
+     * @param buf
+     * @param o
+     * @throws IOException
+     */
+    static void writeJson(ByteBuf buf, Object o) throws IOException {
+        try (ByteBufOutputStream out = new ByteBufOutputStream(buf)) {
+            getWriter(o.getClass()).writeValue((OutputStream) out, o);
+        }
+    }
     
-    static Object invokeMethod(Method m, Object toInvoke, Object[] arguments_f, Future<Object> objectFuture)
+    static Object invokeMethod(HandlerInvoker invoker, Object[] arguments, Future<Object> objectFuture)
     {
     	try {
-            Object toret = m.invoke(toInvoke, arguments_f);
+            Object toret = invoker.invoke(arguments);
             
             if (objectFuture != null) {
             	objectFuture.complete(toret);
@@ -280,8 +640,10 @@ public class RestVertx {
             else {
             	return toret;
             }
-        } catch (InvocationTargetException | IllegalAccessException e) {
-            e.printStackTrace();
+        } catch (Throwable e) {
+            // Exceptions thrown by the handling method come through unwrapped.  A cancelled one gave up on purpose
+            if (!(e instanceof CancellationException))
+                e.printStackTrace();
             
             if (objectFuture != null) {
             	objectFuture.complete(null);
@@ -292,120 +654,217 @@ public class RestVertx {
     	return null;
     }
 
-    static Object[] buildArgs(HashMap<Integer, Parameter> _order, HashMap<Integer, Class<?>> _paramTypes,
-                              HashMap<String, Object> _argValues, ArrayList<Object> _argValueList,
-                              boolean parseRequestBody) {
-        if (_order.isEmpty() && _argValues.isEmpty())
-            return new Object[0];
+    /**
+     * Sets the total size of the responses kept for the routes annotated with Cache, dropping the ones cached so far
+     *
+     * @param _maxBytes
+     */
+    public static void setResponseCacheSize(long _maxBytes) {
+        responseCache = new ResponseCache(_maxBytes);
+    }
 
-        Object[] toret = new Object[_order.size()];
+    static ResponseCache getResponseCache() {
+        return responseCache;
+    }
 
-        if (_order.get(0).getName().contains("arg0")) {
-            // Then program wasn't compiled so parameters were saved or user named first parameter arg0
-            // Because the parameters weren't saved, we don't know anything about the parameter(s)
-            // We can't autobind or assume we know what the argument type is supposed to be (we could guess, but we could be wrong)
+    /**
+     * Sets the largest body the routes registered from now on read whole, unless they're annotated with MaxBodySize.
+     * Streamed bodies (StreamBody) aren't limited unless annotated
+     *
+     * @param _maxBytes - -1 for no limit
+     */
+    public static void setMaxBodySize(long _maxBytes) {
+        maxBodySize = _maxBytes;
+    }
 
-            // Assumption: Path variables are in the same order as the parameters
+    /**
+     * Creates a dedicated worker pool for the blocking routes that name it.  Routes create the pools they name with the
+     * size and max execute time of their annotation if they don't exist yet, call this before registering them to
+     * set those yourself
+     *
+     * @param _name
+     * @param _size - Threads of the pool
+     * @param _maxExecuteTime - Milliseconds a call can take before we warn about it
+     */
+    public static void createWorkerPool(String _name, int _size, long _maxExecuteTime) {
+        workerPools.computeIfAbsent(_name, name -> new WorkerPool(name, _size, _maxExecuteTime));
+    }
 
-            if (parseRequestBody) {
-                if (_argValues.containsKey("__serialized")) {
-                    // only one Json string sent in request body for one complex object
+    /**
+     * Stops the threads of a dedicated worker pool once they're done with the calls already queued.  Routes already
+     * registered on it are answered with a 503 from then on
+     *
+     * @param _name
+     */
+    public static void closeWorkerPool(String _name) {
+        WorkerPool pool = workerPools.remove(_name);
+
+        if (pool != null)
+            pool.close();
+    }
 
-                    if (_paramTypes.size() == 1)
-                        toret[0] = parse(_paramTypes.get(0), _argValues.get("__serialized"));
-                } else {
+    /**
+     * @param _name
+     * @return What the dedicated worker pool is doing, or null if there's no such pool
+     */
+    public static WorkerPoolMetrics getWorkerPoolMetrics(String _name) {
+        WorkerPool pool = VIRTUAL_THREAD_POOL.equals(_name) ? virtualThreadPool : workerPools.get(_name);
 
-                }
-            } else {
-                _argValueList.toArray(toret);
-            }
-        } else {
-            // The program was compiled so parameters were saved (yay!)
+        return (pool == null) ? null : pool.metrics();
+    }
 
-            if (parseRequestBody) {
-                if (_argValues.containsKey("__serialized")) {
-                    if (_paramTypes.size() == 1) {
-                        toret[0] = tryParse(_paramTypes.get(0), _paramTypes.get(0).getName(), _argValues.get("__serialized"));
-                    }
-                } else {
-                    // each argValue will be deserialized into complex objects
-                    for (int key = 0; key < _order.size(); key++) {
-                        // Unbox and cast - Initially a String argument
+    /**
+     * @return What each dedicated worker pool is doing
+     */
+    public static List<WorkerPoolMetrics> getWorkerPoolMetrics() {
+        List<WorkerPoolMetrics> toret = new ArrayList<WorkerPoolMetrics>();
 
-                        toret[key] = tryParse(_paramTypes.get(key), _paramTypes.get(key).getName(), _argValues.get(_order.get(key).getName()));
-                    }
-                }
-            } else {
+        for (WorkerPool pool : workerPools.values()) {
+            toret.add(pool.metrics());
+        }
+
+        if (virtualThreadPool != null)
+            toret.add(virtualThreadPool.metrics());
+
+        return toret;
+    }
+
+    /**
+     * Runs every blocking route that doesn't name a dedicated pool on virtual threads, as if they all had
+     * Blocking(virtual = "true").  Only applies to routes registered afterwards
+     *
+     * @param _virtualThreads
+     */
+    public static void setVirtualThreads(boolean _virtualThreads) {
+        virtualThreads = _virtualThreads;
+    }
+
+    public static boolean isVirtualThreads() {
+        return virtualThreads;
+    }
 
-                // We'll match the path variable names to the method parameter names, no matter the path variable order
-                for (int key = 0; key < _order.size(); key++) {
-                    // Unbox and cast - Initially a String argument
-                    try {
-                        toret[key] = tryParse(_paramTypes.get(key), _paramTypes.get(key).getName(), _argValues.get(_order.get(key).getName()));
-                    } catch (Exception e) {
-                        say(e.getMessage());
-                        e.printStackTrace();
+    /**
+     * @return Whether blocking routes asking for virtual threads get them, false before Java 21 (they use the worker
+     * pool then)
+     */
+    public static boolean hasVirtualThreads() {
+        return getVirtualThreadPool() != null;
+    }
+
+    /**
+     * The pool that starts a virtual thread per call, created the first time a route asks for it
+     *
+     * @return null if the JVM doesn't have virtual threads (before Java 21)
+     */
+    static WorkerPool getVirtualThreadPool() {
+        if (virtualThreadPool == null && !virtualThreadsUnavailable) {
+            synchronized (RestVertx.class) {
+                if (virtualThreadPool == null && !virtualThreadsUnavailable) {
+                    ExecutorService executor = newVirtualThreadPerTaskExecutor();
+
+                    if (executor == null) {
+                        // Don't look again, blocking routes use the worker pool
+                        virtualThreadsUnavailable = true;
+                    } else {
+                        virtualThreadPool = new WorkerPool(VIRTUAL_THREAD_POOL, 0, DEFAULT_MAX_EXECUTE_TIME, executor);
                     }
                 }
             }
         }
 
-        return toret;
+        return virtualThreadPool;
     }
 
-    private static Object tryParse(Class<?> _paramType, String paramName, Object o) {
-        switch (paramName) {
-            case "java.lang.String":
-                return (String) o;
-            case "int":
-                return Integer.parseInt((String) o);
-            case "boolean":
-                return Boolean.parseBoolean((String) o);
-            case "char":
-                return ((String) o).charAt(0);
-            case "double":
-                return Double.parseDouble((String) o);
-            case "long":
-                return Long.parseLong((String) o);
-            case "short":
-                return Short.parseShort((String) o);
-            case "byte":
-                return Byte.parseByte((String) o);
-            case "float":
-                return Float.parseFloat((String) o);
-            default:
-                // Treat it as a JSON Stringified/Serialized Object if the arg value is a string at this point,
-                // try to deserialize/autobind if it is
-                if (o instanceof String) {
+    /**
+     * The pool the streamed request bodies are parsed on, created with DEFAULT_STREAM_BODY_POOL_SIZE threads unless
+     * createWorkerPool(STREAM_BODY_POOL, ...) created it first.  A parser holds its thread for the whole upload, so
+     * they get their own pool rather than starving the blocking routes of the shared one
+     */
+    static WorkerPool getStreamBodyPool() {
+        createWorkerPool(STREAM_BODY_POOL, DEFAULT_STREAM_BODY_POOL_SIZE, DEFAULT_MAX_EXECUTE_TIME);
 
-                    return parse(_paramType, o);
-                } else {
-                    return o.toString();
-                }
+        return workerPools.get(STREAM_BODY_POOL);
+    }
+
+    /**
+     * We build for Java 8, so look Executors.newVirtualThreadPerTaskExecutor() up at runtime
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Not there, or a preview feature that isn't enabled
+            return null;
         }
     }
 
-    static String toString(Object o) {
-        ObjectMapper mapper = new ObjectMapper();
+    static WorkerPool getWorkerPool(Blocking _blocking) {
+        createWorkerPool(_blocking.getPool(), _blocking.getPoolSize(), _blocking.getMaxExecuteTime());
 
-        mapper.setVisibility(mapper.getSerializationConfig().getDefaultVisibilityChecker()
-                .withFieldVisibility(JsonAutoDetect.Visibility.ANY)
-                .withGetterVisibility(JsonAutoDetect.Visibility.NONE)
-                .withSetterVisibility(JsonAutoDetect.Visibility.NONE)
-                .withCreatorVisibility(JsonAutoDetect.Visibility.NONE));
+        return workerPools.get(_blocking.getPool());
+    }
 
-        String toret = "";
+    /**
+     * The response for an asynchronous handling method whose Future or CompletionStage failed.  The failure is mapped
+     * to the closest status code: a bad argument is the client's fault, a timeout is a gateway timeout, and the
+     * failure code of an event bus reply is used as is if it's an http error status
+     *
+     * @param _cause
+     * @return
+     */
+    static RestResponse failure(Throwable _cause) {
+        Throwable cause = _cause;
+
+        // CompletableFutures wrap the failure
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
 
-        try {
-            toret = mapper.writeValueAsString(o);
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
+        cause.printStackTrace();
+
+        int statusCode = 500;
+
+        if (cause instanceof IllegalArgumentException) {
+            statusCode = 400;
+        } else if (cause instanceof TimeoutException) {
+            statusCode = 504;
+        } else if (cause instanceof RejectedExecutionException) {
+            // The worker pool is shut down
+            statusCode = 503;
+        } else if (cause instanceof ReplyException) {
+            ReplyException reply = (ReplyException) cause;
+
+            if (reply.failureType() == ReplyFailure.TIMEOUT) {
+                statusCode = 504;
+            } else if (reply.failureType() == ReplyFailure.NO_HANDLERS) {
+                statusCode = 503;
+            } else if (reply.failureCode() >= 400 && reply.failureCode() <= 599) {
+                statusCode = reply.failureCode();
+            }
         }
 
-        return toret;
+        String message = (cause.getMessage() == null) ? cause.getClass().getSimpleName() : cause.getMessage();
+
+        // The message goes in the status line, keep it on one line
+        return new RestResponse("", statusCode, "Error: " + message.replaceAll("[\\r\\n]+", " "));
     }
 
-    static Object parse(Class<?> p, Object o) {
+    /**
+     * The mapper used to deserialize arguments and serialize results.  Readers and writers are built from it once
+     * per type and cached, so it must be configured before it's handed to RestVertx
+     */
+    private static volatile ObjectMapper mapper = createObjectMapper();
+
+    private static final ConcurrentHashMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<Class<?>, ObjectReader>();
+
+    private static final ConcurrentHashMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<Class<?>, ObjectWriter>();
+
+    /**
+     * Creates the default mapper: fields are (de)serialized directly, getters/setters/creators are ignored
+     *
+     * @return
+     */
+    public static ObjectMapper createObjectMapper() {
         ObjectMapper mapper = new ObjectMapper();
 
         mapper.setVisibility(mapper.getSerializationConfig().getDefaultVisibilityChecker()
@@ -414,46 +873,78 @@ public class RestVertx {
                 .withSetterVisibility(JsonAutoDetect.Visibility.NONE)
                 .withCreatorVisibility(JsonAutoDetect.Visibility.NONE));
 
-        Object toret = null;
+        return mapper;
+    }
 
-        String s = (String) o;
+    public static ObjectMapper getObjectMapper() {
+        return mapper;
+    }
 
-        // Escape if URL Encoded string, which often times contains a % sign
-        if (s.contains("%")) {
-            try {
-                s = URLDecoder.decode(s, "UTF-8");
-            } catch (UnsupportedEncodingException e) {
-                e.printStackTrace();
-            }
-        }
+    /**
+     * Replaces the mapper used for every route.  Call this before registering your handling classes, the routes
+     * resolve their readers and writers when they're registered
+     *
+     * @param _mapper
+     */
+    public static void setObjectMapper(ObjectMapper _mapper) {
+        mapper = _mapper;
+
+        readers.clear();
+        writers.clear();
+    }
+
+    static ObjectReader getReader(Class<?> _type) {
+        return readers.computeIfAbsent(_type, type -> mapper.readerFor(type));
+    }
+
+    static ObjectWriter getWriter(Class<?> _type) {
+        return writers.computeIfAbsent(_type, type -> mapper.writerFor(type));
+    }
+
+    /**
+     * Whether instances of the return type of a handling method are sent as Json objects
+     *
+     * @param _type
+     * @return
+     */
+    static boolean isEntityType(Class<?> _type) {
+        return _type != null && _type != RestResponse.class && _type != Object.class && _type != void.class
+                && !_type.isInterface() && !_type.isPrimitive() && !CompletionStage.class.isAssignableFrom(_type);
+    }
+
+    static String toString(Object o) {
+        String toret = "";
 
         try {
-            toret = mapper.readValue((String) s, p);
-        } catch (JsonParseException e) {
-            e.printStackTrace();
-        } catch (JsonMappingException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
+            toret = getWriter(o.getClass()).writeValueAsString(o);
+        } catch (JsonProcessingException e) {
             e.printStackTrace();
         }
 
         return toret;
     }
 
-    static void loadOrder(HashMap<Integer, Parameter> _map, Method _method) {
-        Parameter[] params = _method.getParameters();
-
-        for (int i = 0; i < params.length; i++) {
-            _map.put(i, params[i]);
-        }
+    static Object parse(Class<?> p, Object o) throws IOException {
+        return parse(getReader(p), (String) o);
     }
 
-    static void loadParamTypes(HashMap<Integer, Class<?>> _map, Method _method) {
-        Class<?>[] test = _method.getParameterTypes();
-
-        for (int i = 0; i < test.length; i++) {
-            _map.put(i, test[i]);
+    /**
+     * @param reader
+     * @param s
+     * @return
+     * @throws IOException - If s is malformed Json or doesn't map to the reader's type, so the request can be answered with 400
+     */
+    static Object parse(ObjectReader reader, String s) throws IOException {
+        // Escape if URL Encoded string, which often times contains a % sign
+        if (s.contains("%")) {
+            try {
+                s = URLDecoder.decode(s, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                e.printStackTrace();
+            }
         }
+
+        return reader.readValue(s);
     }
 
     static void setArgumentNameIndex(ArrayList<String> _list, String _path) {
@@ -468,8 +959,8 @@ public class RestVertx {
         }
     }
 
-    static String parseMethodName(Method _method) {
-        String name = _method.getName().toLowerCase();
+    static String parseMethodName(String _methodName) {
+        String name = _methodName.toLowerCase();
 
         // Check if the method is an exact match of an http method, if it is then we'll treat it as such
         switch (name) {
@@ -478,7 +969,7 @@ public class RestVertx {
             case "put":
             case "delete":
             case "options":
-                return _method.getName();
+                return _methodName;
             default:
                 break;
         }
@@ -506,11 +997,17 @@ public class RestVertx {
         if (_sub.isAnnotationPresent(rest.vertx.Annotations.Base.class))
             basePath = _sub.getAnnotation(Base.class).value();
 
+        return getBasePathValue(basePath);
+    }
+
+    static String getBasePathValue(String _basePath) {
         // Make sure the forward slash is present at the very minimum for base path
-        if (basePath.length() > 0 && !basePath.equals("/"))
-            return "/" + basePath;
-        else
+        if (_basePath == null || _basePath.length() == 0 || _basePath.equals("/"))
             return "/";
+        else if (_basePath.charAt(0) == '/')
+            return _basePath;
+        else
+            return "/" + _basePath;
     }
 
     static boolean hasNoParam(Method _method) {
@@ -521,21 +1018,19 @@ public class RestVertx {
         return _method.isAnnotationPresent(RestIgnore.class);
     }
 
-    static String[] getCORS(Method _method) {
-        if (_method.isAnnotationPresent(rest.vertx.Annotations.CORS.class)) {
-            rest.vertx.Annotations.CORS[] cors = _method.getAnnotationsByType(rest.vertx.Annotations.CORS.class);
+    static String[] getCORS(String[] _values) {
+        if (_values != null && _values.length > 0) {
+            String[] ipAndPorts = new String[_values.length];
 
-            String[] ipAndPorts = new String[cors.length];
-
-            for (int i = 0; i < cors.length; i++) {
-                if (cors[i].value() != null && cors[i].value().length() > 0) {
+            for (int i = 0; i < _values.length; i++) {
+                if (_values[i] != null && _values[i].length() > 0) {
                     // Only support one
-                    ipAndPorts[i] = cors[i].value();
+                    ipAndPorts[i] = _values[i];
                 } else {
                     ipAndPorts[i] = "*";
                 }
 
-                if (i < cors.length - 1) {
+                if (i < _values.length - 1) {
                     ipAndPorts[i] += ",";
                 }
             }
@@ -548,18 +1043,20 @@ public class RestVertx {
 
     static String getPath(Method _method) {
         if (_method.isAnnotationPresent(rest.vertx.Annotations.Path.class)) {
-            String path = _method.getAnnotation(rest.vertx.Annotations.Path.class).value();
-
-            // Make sure the forward slash is present at the very minimum for method path if it's set
-            if (path.length() > 0 && !(path.charAt(0) == '/'))
-                return "/" + path;
-
-            return path;
+            return getPath(_method.getAnnotation(rest.vertx.Annotations.Path.class).value());
         } else {
             return null;
         }
     }
 
+    static String getPath(String _path) {
+        // Make sure the forward slash is present at the very minimum for method path if it's set
+        if (_path != null && _path.length() > 0 && !(_path.charAt(0) == '/'))
+            return "/" + _path;
+
+        return _path;
+    }
+
     static String getHttpMethod(Method _method) {
         if (_method.isAnnotationPresent(rest.vertx.Annotations.Method.class)) {
             return _method.getAnnotation(rest.vertx.Annotations.Method.class).value();
@@ -589,7 +1086,24 @@ public class RestVertx {
             return new Blocking();
         }
     	
-    	return new Blocking(blocking, serial);
+    	rest.vertx.Annotations.Blocking annotation = _method.getAnnotation(rest.vertx.Annotations.Blocking.class);
+    	
+    	Blocking toret;
+    	
+    	if (!annotation.pool().isEmpty()) {
+    		toret = new Blocking(blocking, serial, annotation.pool(), Integer.parseInt(annotation.poolSize()),
+    				Long.parseLong(annotation.maxExecuteTime()));
+    	} else {
+    		toret = new Blocking(blocking, serial);
+    	}
+    	
+    	toret.setVirtual(annotation.virtual().toLowerCase().equals("true"));
+    	
+    	if (!annotation.key().isEmpty()) {
+    		toret.setKey(annotation.key());
+    	}
+    	
+    	return toret;
     }
 
     private static final String TYPE_NAME_PREFIX = "class ";
@@ -614,7 +1128,7 @@ public class RestVertx {
         return Class.forName(className);
     }
 
-    private static Route getRouteMethod(String mthd, String path, Router subRouter) {
+    static Route getRouteMethod(String mthd, String path, Router subRouter) {
         Route toret = null;
 
         switch (mthd.toUpperCase()) {
@@ -670,6 +1184,13 @@ public class RestVertx {
     	}
     }
     
+    private static void addHeaders(MultiMap headers, RoutingContext rc) {
+    	
+    	if (headers != null) {
+    		rc.response().headers().addAll(headers);
+    	}
+    }
+
     private static void putStatus(RestResponse rr, RoutingContext rc) {
     	
     	if (rr.getStatusCode() != 200) {
@@ -0,0 +1,372 @@
+package rest.vertx;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.net.JksOptions;
+import io.vertx.core.net.PemKeyCertOptions;
+import io.vertx.ext.web.Router;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import javax.net.ssl.SSLContext;
+
+/**
+ * Starts a RestVertx server on every core instead of one event loop.
+ *
+ * Deploys a number of verticles (one per core by default), each with its own Router, its own instances of the
+ * handling classes (from the suppliers) and its own HttpServer on the same port.  Vertx hands the connections to
+ * the instances in turn, and since each instance only ever runs on its own event loop, the state of a handler
+ * instance is never shared between cores.
+ *
+ * The servers start with options tuned for many short requests over kept-alive connections (see
+ * {@link #defaultServerOptions()}), which can be changed one by one or replaced with {@link #options(HttpServerOptions)}.
+ *
+ * RestVertxServer.create(vertx)
+ *     .handler(() -> new Choirs(database))
+ *     .listen(8080)
+ *     .start(result -> ...);
+ */
+public class RestVertxServer {
+
+    /**
+     * The only cipher suites enabled with ssl(): AES-GCM and ChaCha20-Poly1305 with forward secrecy, the ones that are
+     * both fast (AES-NI, or ChaCha20 on CPUs without it) and safe.  This restricts the suites, it doesn't rank them:
+     * Vertx keeps them in a set, and which of them a connection uses is up to the JDK's SSL engine and the client
+     */
+    public static final List<String> PREFERRED_CIPHER_SUITES = Arrays.asList(
+            // TLS 1.3
+            "TLS_AES_128_GCM_SHA256",
+            "TLS_AES_256_GCM_SHA384",
+            "TLS_CHACHA20_POLY1305_SHA256",
+            // TLS 1.2
+            "TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256",
+            "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256",
+            "TLS_ECDHE_ECDSA_WITH_AES_256_GCM_SHA384",
+            "TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384",
+            "TLS_ECDHE_ECDSA_WITH_CHACHA20_POLY1305_SHA256",
+            "TLS_ECDHE_RSA_WITH_CHACHA20_POLY1305_SHA256");
+
+    private final Vertx vertx;
+
+    // Each instance gets its own handler from each of these
+    private final List<Supplier<?>> handlers = new ArrayList<Supplier<?>>();
+
+    // Anything else to set up on the router of each instance (ie: handling classes that register themselves)
+    private final List<BiConsumer<Vertx, Router>> routes = new ArrayList<BiConsumer<Vertx, Router>>();
+
+    private int instances = Runtime.getRuntime().availableProcessors();
+
+    private int port = 8080;
+
+    private String host = "0.0.0.0";
+
+    private HttpServerOptions serverOptions = defaultServerOptions();
+
+    private final List<String> deploymentIds = new CopyOnWriteArrayList<String>();
+
+    private RestVertxServer(Vertx vertx) {
+        this.vertx = vertx;
+    }
+
+    public static RestVertxServer create(Vertx _v) {
+        return new RestVertxServer(_v);
+    }
+
+    /**
+     * Adds a handling class: each instance of the server registers its own handler from the supplier
+     *
+     * @param _handler - Called once per instance, on the instance's event loop
+     * @return
+     */
+    public RestVertxServer handler(Supplier<?> _handler) {
+        handlers.add(_handler);
+
+        return this;
+    }
+
+    /**
+     * Sets up the router of each instance, ie: (vertx, router) -> new Singers(vertx, router) for handling classes
+     * that register themselves, or routes that aren't RestVertx ones
+     *
+     * @param _routes - Called once per instance, on the instance's event loop
+     * @return
+     */
+    public RestVertxServer routes(BiConsumer<Vertx, Router> _routes) {
+        routes.add(_routes);
+
+        return this;
+    }
+
+    /**
+     * @param _instances - Number of event loops serving requests, the number of cores by default
+     * @return
+     */
+    public RestVertxServer instances(int _instances) {
+        if (_instances < 1)
+            throw new IllegalArgumentException("At least one instance is needed, not " + _instances);
+
+        instances = _instances;
+
+        return this;
+    }
+
+    public RestVertxServer listen(int _port) {
+        port = _port;
+
+        return this;
+    }
+
+    public RestVertxServer host(String _host) {
+        host = _host;
+
+        return this;
+    }
+
+    /**
+     * Replaces the options of the servers (the port and host are still the ones given to listen() and host())
+     *
+     * @param _options
+     * @return
+     */
+    public RestVertxServer options(HttpServerOptions _options) {
+        serverOptions = new HttpServerOptions(_options);
+
+        return this;
+    }
+
+    /**
+     * @param _tcpNoDelay - Send small responses right away instead of waiting to fill a packet (Nagle), on by default
+     * @return
+     */
+    public RestVertxServer tcpNoDelay(boolean _tcpNoDelay) {
+        serverOptions.setTcpNoDelay(_tcpNoDelay);
+
+        return this;
+    }
+
+    /**
+     * @param _tcpKeepAlive - Let the OS find out about dead peers, on by default
+     * @return
+     */
+    public RestVertxServer tcpKeepAlive(boolean _tcpKeepAlive) {
+        serverOptions.setTcpKeepAlive(_tcpKeepAlive);
+
+        return this;
+    }
+
+    /**
+     * @param _seconds - Connections (kept alive or not) with nothing coming or going for this long are closed, 0 to keep them forever
+     * @return
+     */
+    public RestVertxServer idleTimeout(int _seconds) {
+        serverOptions.setIdleTimeout(_seconds);
+
+        return this;
+    }
+
+    /**
+     * @param _backlog - Connections the OS queues while every event loop is busy accepting
+     * @return
+     */
+    public RestVertxServer acceptBacklog(int _backlog) {
+        serverOptions.setAcceptBacklog(_backlog);
+
+        return this;
+    }
+
+    /**
+     * @param _compression - gzip/deflate the responses of clients that accept it
+     * @return
+     */
+    public RestVertxServer compression(boolean _compression) {
+        serverOptions.setCompressionSupported(_compression);
+
+        return this;
+    }
+
+    /**
+     * @param _bytes - Larger request headers are refused
+     * @return
+     */
+    public RestVertxServer maxHeaderSize(int _bytes) {
+        serverOptions.setMaxHeaderSize(_bytes);
+
+        return this;
+    }
+
+    /**
+     * Serves https with the key and certificate from a Java key store, with only the PREFERRED_CIPHER_SUITES the JVM has
+     *
+     * @param _keyStore
+     * @return
+     */
+    public RestVertxServer ssl(JksOptions _keyStore) {
+        serverOptions.setSsl(true).setKeyStoreOptions(_keyStore);
+
+        enablePreferredCipherSuites();
+
+        return this;
+    }
+
+    /**
+     * Serves https with the key and certificate from PEM files, with only the PREFERRED_CIPHER_SUITES the JVM has
+     *
+     * @param _keyCert
+     * @return
+     */
+    public RestVertxServer ssl(PemKeyCertOptions _keyCert) {
+        serverOptions.setSsl(true).setPemKeyCertOptions(_keyCert);
+
+        enablePreferredCipherSuites();
+
+        return this;
+    }
+
+    private void enablePreferredCipherSuites() {
+        List<String> supported;
+
+        try {
+            supported = Arrays.asList(SSLContext.getDefault().getSupportedSSLParameters().getCipherSuites());
+        } catch (NoSuchAlgorithmException e) {
+            // Leave the JVM's defaults
+            return;
+        }
+
+        for (String cipherSuite : PREFERRED_CIPHER_SUITES) {
+            if (supported.contains(cipherSuite))
+                serverOptions.addEnabledCipherSuite(cipherSuite);
+        }
+    }
+
+    /**
+     * TCP_NODELAY and SO_KEEPALIVE on, SO_REUSEADDR so a restarted server can bind right away, pooled buffers, a
+     * backlog of 1024 for connection bursts and idle connections closed after 60 seconds
+     */
+    public static HttpServerOptions defaultServerOptions() {
+        return new HttpServerOptions()
+                .setTcpNoDelay(true)
+                .setTcpKeepAlive(true)
+                .setReuseAddress(true)
+                .setUsePooledBuffers(true)
+                .setAcceptBacklog(1024)
+                .setIdleTimeout(60);
+    }
+
+    public int getInstances() {
+        return instances;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Options of the HttpServer of each instance
+     */
+    HttpServerOptions getServerOptions() {
+        return new HttpServerOptions(serverOptions).setPort(port).setHost(host);
+    }
+
+    /**
+     * Deploys the instances.  If one of them fails to start, the others are undeployed
+     *
+     * @param _done - Called once every instance is listening, or with the first failure
+     */
+    public void start(Handler<AsyncResult<Void>> _done) {
+        AtomicInteger pending = new AtomicInteger(instances);
+
+        List<Throwable> failures = new CopyOnWriteArrayList<Throwable>();
+
+        for (int i = 0; i < instances; i++) {
+            // A verticle instance per deployment, so each one gets its own event loop
+            vertx.deployVerticle(new RestVerticle(), result -> {
+                if (result.succeeded()) {
+                    deploymentIds.add(result.result());
+                } else {
+                    failures.add(result.cause());
+                }
+
+                if (pending.decrementAndGet() > 0)
+                    return;
+
+                if (failures.isEmpty()) {
+                    done(_done, Future.succeededFuture());
+                } else {
+                    stop(v -> done(_done, Future.failedFuture(failures.get(0))));
+                }
+            });
+        }
+    }
+
+    /**
+     * Undeploys the instances, closing their servers
+     *
+     * @param _done - Called once they're all gone (may be null)
+     */
+    public void stop(Handler<AsyncResult<Void>> _done) {
+        List<String> ids = new ArrayList<String>(deploymentIds);
+
+        deploymentIds.clear();
+
+        if (ids.isEmpty()) {
+            done(_done, Future.succeededFuture());
+            return;
+        }
+
+        AtomicInteger pending = new AtomicInteger(ids.size());
+
+        for (String id : ids) {
+            vertx.undeploy(id, result -> {
+                if (pending.decrementAndGet() == 0)
+                    done(_done, Future.succeededFuture());
+            });
+        }
+    }
+
+    private static void done(Handler<AsyncResult<Void>> _done, AsyncResult<Void> result) {
+        if (_done != null)
+            _done.handle(result);
+    }
+
+    /**
+     * One instance of the server: a router with its own handlers, and a server on the shared port
+     */
+    private class RestVerticle extends AbstractVerticle {
+
+        @Override
+        public void start(Future<Void> startFuture) {
+            Router router = Router.router(vertx);
+
+            for (Supplier<?> handler : handlers) {
+                RestVertx.register(vertx, router, handler.get());
+            }
+
+            for (BiConsumer<Vertx, Router> setup : routes) {
+                setup.accept(vertx, router);
+            }
+
+            vertx.createHttpServer(getServerOptions()).requestHandler(router::accept).listen(result -> {
+                if (result.succeeded()) {
+                    startFuture.complete();
+                } else {
+                    startFuture.fail(result.cause());
+                }
+            });
+        }
+    }
+}
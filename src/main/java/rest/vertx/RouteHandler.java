@@ -0,0 +1,546 @@
+package rest.vertx;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.RoutingContext;
+import rest.vertx.models.Batch;
+import rest.vertx.models.Blocking;
+import rest.vertx.models.Cache;
+import rest.vertx.models.Deadline;
+import rest.vertx.models.RestResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Handles the requests of one route: binds the arguments, invokes the handling method (on a worker if it's blocking)
+ * and sends what it returned.  Everything about the route is worked out by RestVertx.compile() when it's registered
+ */
+final class RouteHandler implements Handler<RoutingContext> {
+
+    // What the work returns when the arguments couldn't be bound
+    private static final Object BAD_REQUEST = new Object();
+
+    // What a coalesced call hands its followers when its result can't be sent more than once (ie: a stream)
+    private static final Object NOT_SHARED = new Object();
+
+    private final Vertx vertx;
+
+    private final HandlerInvoker invoker;
+
+    // The route's name from RestVertx.getRouteKey(), the same for all its instances
+    private final String route;
+
+    private final BindingPlan bindingPlan;
+
+    private final Blocking blocking;
+
+    private final String[] cors;
+
+    private final String resultType;
+
+    // Bind the arguments as the body comes in, rather than waiting for the whole body
+    private final boolean streamBody;
+
+    // Bytes a streamed body is cut off at, -1 for no limit
+    private final long maxBodySize;
+
+    // null if the responses aren't cached
+    private final Cache cache;
+
+    // The dedicated worker pool (or virtual threads) of a blocking route, null for the shared Vertx one
+    private final WorkerPool workerPool;
+
+    // The calls in flight by arguments, null if the route doesn't coalesce them
+    private final SingleFlight singleFlight;
+
+    // Index of the parameter a keyed route keeps its calls in order by, -1 if it isn't keyed
+    private final int keyIndex;
+
+    // Keeps the calls of a keyed route with the same key in order
+    private final KeyedQueue keyed;
+
+    // Keeps all the calls of a serial route in order
+    private final boolean serial;
+
+    // Collects the calls into batches for the batch method, null if the route doesn't batch them
+    private final Batcher batcher;
+
+    // The batch method, null if the route doesn't batch its calls
+    private final Batch batch;
+
+    // Keeps the calls of a serial route in order on its dedicated pool
+    private final Executor ordered;
+
+    // Milliseconds before the request is answered with 504, 0 for no timeout
+    private final long timeout;
+
+    RouteHandler(Vertx vertx, HandlerInvoker invoker, String route, BindingPlan bindingPlan, Blocking blocking, String[] cors,
+            String resultType, boolean streamBody, Cache cache, boolean coalesce, Batch batch, long timeout, long maxBodySize) {
+        this.vertx = vertx;
+        this.invoker = invoker;
+        this.route = route;
+        this.bindingPlan = bindingPlan;
+        this.blocking = blocking;
+        this.cors = cors;
+        this.resultType = resultType;
+        this.streamBody = streamBody;
+        this.maxBodySize = maxBodySize;
+        this.cache = cache;
+        this.workerPool = getWorkerPool(blocking);
+        // Shared with the instances of the route on the other event loops, or each of them would run the same call
+        this.singleFlight = coalesce ? RestVertx.getSingleFlight(route) : null;
+        this.keyIndex = (blocking.isBlocking() && blocking.getKey() != null) ? bindingPlan.indexOf(blocking.getKey()) : -1;
+
+        if (blocking.isBlocking() && blocking.getKey() != null && keyIndex < 0)
+            throw new IllegalArgumentException("No parameter bound from " + blocking.getKey() + " to keep the calls in order by");
+
+        // Shared with the instances of the route on the other event loops, or calls with the same key could overlap
+        this.keyed = (keyIndex >= 0) ? RestVertx.getKeyedQueue(route) : null;
+        // A key takes the place of serial, the calls with different keys must be able to run in parallel
+        this.serial = blocking.isSerial() && keyed == null;
+        this.ordered = (workerPool != null && serial) ? workerPool.serial(route) : null;
+
+        if (batch != null && batch.getInvoker() == null)
+            throw new IllegalArgumentException("No batch method " + batch.getMethod() + " to invoke");
+
+        this.batch = batch;
+        this.batcher = (batch != null) ? new Batcher(vertx, batch.getMaxSize(), batch.getMaxDelay(), this::executeBatch) : null;
+        this.timeout = timeout;
+    }
+
+    /**
+     * A dedicated pool if the route names one, else virtual threads if asked for (and the JVM has them)
+     *
+     * @return null for the shared Vertx worker pool, or if the route isn't blocking
+     */
+    private static WorkerPool getWorkerPool(Blocking blocking) {
+        if (!blocking.isBlocking())
+            return null;
+
+        if (blocking.getPool() != null)
+            return RestVertx.getWorkerPool(blocking);
+
+        if (blocking.isVirtual() || RestVertx.isVirtualThreads())
+            return RestVertx.getVirtualThreadPool();
+
+        return null;
+    }
+
+    @Override
+    public void handle(RoutingContext rc) {
+
+        Deadline deadline = (timeout > 0 || bindingPlan.deadlineIndex() >= 0) ? watch(rc) : null;
+
+        if (streamBody && rc.getBody() == null) {
+            BodyStreamer.bind(vertx, rc, bindingPlan, maxBodySize, arguments -> dispatch(rc, arguments, deadline));
+        } else if (blocking.isBlocking() && cache == null && keyed == null && singleFlight == null && batcher == null
+                && bindingPlan.readsBody()) {
+            // Deserializing a large body could stall every connection on the event loop, do it on the worker as well
+            execute(guard(deadline, () -> {
+                Object[] arguments = bindingPlan.bind(rc);
+
+                return (arguments == null) ? BAD_REQUEST : invoke(withDeadline(arguments, deadline));
+            }), toret -> respond(rc, toret));
+        } else {
+            // Places the path variable/arguments in order specified by the parameter
+            // (the body was read whole by the Endpoint, or by a BodyHandler on the main router already)
+            dispatch(rc, bindingPlan.bind(rc), deadline);
+        }
+    }
+
+    /**
+     * Starts the request's deadline: it's cancelled if the client goes away, or when the timeout runs out (then the
+     * client gets a 504 unless the response is already under way)
+     */
+    private Deadline watch(RoutingContext rc) {
+        Deadline deadline = new Deadline(timeout);
+
+        if (timeout > 0) {
+            long timer = vertx.setTimer(timeout, id -> {
+                deadline.cancel();
+
+                if (!gone(rc) && !rc.response().headWritten()) {
+                    RestVertx.invokeResponse(rc, cors, RestVertx.failure(new TimeoutException("No response after " + timeout + "ms")), resultType);
+                }
+            });
+
+            rc.addBodyEndHandler(v -> vertx.cancelTimer(timer));
+
+            RestVertx.onClose(rc, () -> vertx.cancelTimer(timer));
+        }
+
+        RestVertx.onClose(rc, deadline::cancel);
+
+        return deadline;
+    }
+
+    /**
+     * Skips the work if the request was cancelled while it waited for a worker
+     */
+    private static Supplier<Object> guard(Deadline deadline, Supplier<Object> _work) {
+        if (deadline == null)
+            return _work;
+
+        // Nobody is going to read what it returns
+        return () -> deadline.isCancelled() ? null : _work.get();
+    }
+
+    private Object[] withDeadline(Object[] arguments, Deadline deadline) {
+        if (arguments != null && bindingPlan.deadlineIndex() >= 0)
+            arguments[bindingPlan.deadlineIndex()] = deadline;
+
+        return arguments;
+    }
+
+    /**
+     * The response was sent already (ie: timed out) or the client went away
+     */
+    private static boolean gone(RoutingContext rc) {
+        return rc.response().ended() || rc.response().closed();
+    }
+
+    /**
+     * Invokes the handling method with the bound arguments and sends the response
+     *
+     * @param rc
+     * @param arguments - The bound arguments, or null if the request couldn't be bound
+     * @param deadline - The request's deadline, null if the route has no timeout and doesn't take one
+     */
+    private void dispatch(RoutingContext rc, Object[] arguments, Deadline deadline) {
+
+        if (gone(rc))
+            return;
+
+        // Do not trust the client. He may not have sent the json, or it could be malformed.
+        // In this case, send an empty response with status code = 400 (bad request)
+        if (arguments == null) {
+            rc.response().setStatusCode(400).end();
+            return;
+        }
+
+        withDeadline(arguments, deadline);
+
+        if (cache != null) {
+            dispatchCached(rc, arguments);
+            return;
+        }
+
+        executeCoalesced(arguments, deadline, toret -> respond(rc, toret));
+    }
+
+    private void respond(RoutingContext rc, Object toret) {
+        if (gone(rc))
+            return;
+
+        if (toret == BAD_REQUEST) {
+            rc.response().setStatusCode(400).end();
+        } else {
+            RestVertx.invokeResponse(rc, cors, toret, resultType);
+        }
+    }
+
+    /**
+     * Invokes the handling method.  On a worker, the result is encoded right there too, so all that's left for the
+     * event loop is writing the bytes
+     */
+    private Object invoke(Object[] arguments) {
+        Object toret = RestVertx.invokeMethod(invoker, arguments, null);
+
+        if (!blocking.isBlocking())
+            return toret;
+
+        try {
+            RestResponse encoded = RestVertx.encodeResponse(toret, resultType);
+
+            return (encoded != null) ? encoded : toret;
+        } catch (IOException e) {
+            // invokeResponse() will try again and report it
+            return toret;
+        }
+    }
+
+    /**
+     * Sends the cached response for these arguments if there is one, refreshing it in the background once it's stale.
+     * Otherwise invokes the handling method and caches what it returned
+     */
+    private void dispatchCached(RoutingContext rc, Object[] arguments) {
+        ResponseCache responses = RestVertx.getResponseCache();
+
+        ResponseCache.Key key = keyOf(arguments);
+
+        ResponseCache.Entry entry = responses.get(key);
+
+        if (entry != null) {
+            RestVertx.invokeResponse(rc, cors, entry.response, resultType);
+
+            // Stale: the client got the old response, the next ones get a fresh one
+            if (!entry.isFresh(System.currentTimeMillis()) && entry.startRefresh()) {
+                executeKeyed(arguments, () -> invoke(arguments), toret -> {
+                    store(responses, key, toret);
+
+                    entry.endRefresh();
+                });
+            }
+
+            return;
+        }
+
+        // Shared by everyone asking for these arguments, so it isn't given up when this client is
+        executeCoalesced(arguments, null, toret -> {
+            RestResponse encoded = store(responses, key, toret);
+
+            if (!gone(rc))
+                RestVertx.invokeResponse(rc, cors, (encoded != null) ? encoded : toret, resultType);
+        });
+    }
+
+    /**
+     * @return The encoded response that was cached, or null if it can't be cached
+     */
+    private RestResponse store(ResponseCache responses, ResponseCache.Key key, Object toret) {
+        RestResponse encoded;
+
+        try {
+            encoded = ResponseCache.encode(toret, resultType);
+        } catch (IOException e) {
+            // invokeResponse() will report it
+            return null;
+        }
+
+        if (encoded != null)
+            responses.put(key, encoded, cache.getTtl() * 1000, cache.getStaleWhileRevalidate() * 1000);
+
+        return encoded;
+    }
+
+    /**
+     * Invokes the handling method, unless the route coalesces its calls and a call with the same arguments is in flight:
+     * then the handler gets that call's result instead
+     */
+    private void executeCoalesced(Object[] arguments, Deadline deadline, Handler<Object> _resultHandler) {
+        if (singleFlight == null) {
+            executeKeyed(arguments, guard(deadline, () -> invoke(arguments)), _resultHandler);
+            return;
+        }
+
+        ResponseCache.Key key = keyOf(arguments);
+
+        boolean leader = singleFlight.join(key, vertx.getOrCreateContext(), toret -> {
+            if (toret == NOT_SHARED) {
+                // We'll have to run it ourselves
+                executeKeyed(arguments, guard(deadline, () -> invoke(arguments)), _resultHandler);
+            } else {
+                _resultHandler.handle(toret);
+            }
+        });
+
+        if (!leader)
+            return;
+
+        executeKeyed(arguments, () -> invoke(arguments), toret -> {
+            Object shared = share(toret);
+
+            singleFlight.complete(key, shared);
+
+            _resultHandler.handle((shared == NOT_SHARED) ? toret : shared);
+        });
+    }
+
+    /**
+     * The key of the calls with the same arguments, not counting the Deadline each request has its own of.  It names
+     * the route rather than this handler, so every instance of the route finds the same cached response
+     */
+    private ResponseCache.Key keyOf(Object[] arguments) {
+        int deadlineIndex = bindingPlan.deadlineIndex();
+
+        if (deadlineIndex < 0)
+            return new ResponseCache.Key(route, arguments);
+
+        Object[] bound = arguments.clone();
+
+        bound[deadlineIndex] = null;
+
+        return new ResponseCache.Key(route, bound);
+    }
+
+    /**
+     * @return The result encoded so it can be sent to every request that waited on it, or NOT_SHARED
+     */
+    private Object share(Object toret) {
+        // A failed call fails for everyone
+        if (toret == null)
+            return null;
+
+        try {
+            RestResponse encoded = RestVertx.encodeResponse(toret, resultType);
+
+            return (encoded != null) ? encoded : NOT_SHARED;
+        } catch (IOException e) {
+            return NOT_SHARED;
+        }
+    }
+
+    /**
+     * Runs the work after the calls with the same key, if the route is keyed.  If the route batches its calls, the
+     * call goes into the next batch instead
+     */
+    private void executeKeyed(Object[] arguments, Supplier<Object> _work, Handler<Object> _resultHandler) {
+        if (batcher != null) {
+            batcher.add(arguments, _resultHandler);
+            return;
+        }
+
+        if (keyed == null) {
+            execute(_work, _resultHandler);
+            return;
+        }
+
+        Context context = vertx.getOrCreateContext();
+
+        // The previous call with this key may have been made on another event loop, start this one on its own
+        keyed.run(arguments[keyIndex], done -> onContext(context, () -> execute(_work, toret -> {
+            // Let the next call with this key go
+            done.run();
+
+            _resultHandler.handle(toret);
+        })));
+    }
+
+    /**
+     * Invokes the batch method once for all the calls, and hands each call its own result
+     */
+    private void executeBatch(List<Batcher.Call> calls) {
+        // execute() waits for a Future or CompletionStage of the List, toret is the List itself
+        execute(() -> invokeBatch(calls), toret -> {
+            List<?> results = (toret instanceof List && ((List<?>) toret).size() == calls.size()) ? (List<?>) toret : null;
+
+            // A failed batch fails every call in it (a RestResponse from failure() keeps its status)
+            Object failed = (results != null || toret == null || toret instanceof RestResponse) ? toret
+                    : RestVertx.failure(new IllegalStateException("Batch method " + batch.getMethod() + " returned "
+                            + toret.getClass().getName() + " instead of a List of " + calls.size() + " results"));
+
+            for (int i = 0; i < calls.size(); i++) {
+                Batcher.Call call = calls.get(i);
+
+                Object result = (results != null) ? results.get(i) : failed;
+
+                onContext(call.context, () -> call.resultHandler.handle(result));
+            }
+        });
+    }
+
+    /**
+     * The batch method gets the arguments of each call, or just the argument if the handling method takes one.  A
+     * Deadline parameter isn't bound from the request, so it isn't passed on
+     */
+    private Object invokeBatch(List<Batcher.Call> calls) {
+        List<Object> arguments = new ArrayList<Object>(calls.size());
+
+        int deadlineIndex = bindingPlan.deadlineIndex();
+
+        for (Batcher.Call call : calls) {
+            Object[] bound = call.arguments;
+
+            if (deadlineIndex >= 0) {
+                bound = new Object[call.arguments.length - 1];
+
+                System.arraycopy(call.arguments, 0, bound, 0, deadlineIndex);
+                System.arraycopy(call.arguments, deadlineIndex + 1, bound, deadlineIndex, bound.length - deadlineIndex);
+            }
+
+            arguments.add((bound.length == 1) ? bound[0] : bound);
+        }
+
+        Object toret = RestVertx.invokeMethod(batch.getInvoker(), new Object[] { arguments }, null);
+
+        if (!blocking.isBlocking() || !(toret instanceof List))
+            return toret;
+
+        // Encode the results while we're on the worker, like invoke() does
+        List<Object> encoded = new ArrayList<Object>(((List<?>) toret).size());
+
+        for (Object result : (List<?>) toret) {
+            try {
+                RestResponse response = RestVertx.encodeResponse(result, resultType);
+
+                encoded.add((response != null) ? response : result);
+            } catch (IOException e) {
+                encoded.add(result);
+            }
+        }
+
+        return encoded;
+    }
+
+    /**
+     * Runs the work (invoking the handling method), on a worker if it's blocking, and hands what it returned to the
+     * handler on the event loop.  If it returned a Future or a CompletionStage, the handler gets its value once it resolves
+     */
+    private void execute(Supplier<Object> _work, Handler<Object> _resultHandler) {
+        Context context = vertx.getOrCreateContext();
+
+        // This can be pretty long. Since we have a grip on the Vertx object we can use it to create a blocking function
+        	// Only use blocking if blocking is indicated in the handling method's blocking annotation
+        if (workerPool != null) {
+            // On its own pool, so it doesn't hold up the other blocking routes
+            workerPool.executeBlocking(
+                    context,
+                    objectFuture -> objectFuture.complete(_work.get()),
+                    ordered,
+                    objectAsyncResult -> resolve(context,
+                            objectAsyncResult.succeeded() ? objectAsyncResult.result() : RestVertx.failure(objectAsyncResult.cause()),
+                            _resultHandler)
+            );
+        } else if (blocking.isBlocking()) {
+            vertx.executeBlocking(
+                    objectFuture -> {
+                    	objectFuture.complete(_work.get());
+                    },
+                    serial,
+                    objectAsyncResult -> resolve(context,
+                            objectAsyncResult.succeeded() ? objectAsyncResult.result() : RestVertx.failure(objectAsyncResult.cause()),
+                            _resultHandler)
+        	);
+        } else {
+        	// Non-blocking
+        	resolve(context, _work.get(), _resultHandler);
+        }
+    }
+
+    /**
+     * Waits for asynchronous results without blocking: the handler is called back on the request's context when the
+     * Future or CompletionStage completes, with its value or a RestResponse carrying the status its failure maps to
+     */
+    @SuppressWarnings("unchecked")
+    private static void resolve(Context context, Object toret, Handler<Object> _resultHandler) {
+
+        if (toret instanceof Future) {
+            ((Future<Object>) toret).setHandler(result -> onContext(context,
+                    () -> _resultHandler.handle(result.succeeded() ? result.result() : RestVertx.failure(result.cause()))));
+        } else if (toret instanceof CompletionStage) {
+            ((CompletionStage<Object>) toret).whenComplete((result, e) -> onContext(context,
+                    () -> _resultHandler.handle((e == null) ? result : RestVertx.failure(e))));
+        } else {
+            _resultHandler.handle(toret);
+        }
+    }
+
+    /**
+     * Futures may be completed from any thread, the response is written from the request's context
+     */
+    private static void onContext(Context context, Runnable action) {
+        if (Vertx.currentContext() == context) {
+            action.run();
+        } else {
+            context.runOnContext(v -> action.run());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package rest.vertx;
+
+/**
+ * Registers the routes of a handling class without reflection.
+ *
+ * Implementations are generated at build time by {@link rest.vertx.processor.RouteProcessor} as
+ * {@code <HandlingClass>_RestVertxRegistrar} in the handling class's package.  RestVertx.register() uses the generated
+ * registrar when there is one, and so does RestDispatcher.register().
+ *
+ * @param <T> - The handling class
+ */
+public interface RouteRegistrar<T> {
+
+    /** Suffix appended to the handling class name to name its generated registrar */
+    String SUFFIX = "_RestVertxRegistrar";
+
+    /**
+     * Hands each route of the handling class to the target
+     *
+     * @param _target
+     * @param _toInvoke - The handler instance
+     */
+    void register(RouteTarget _target, T _toInvoke);
+}
@@ -0,0 +1,19 @@
+package rest.vertx;
+
+import rest.vertx.models.RequestInfo;
+
+/**
+ * Where the routes of a handling class go: the class's own Router (RestVertx.register()) or the tree shared by all
+ * the classes of a {@link RestDispatcher}
+ */
+@FunctionalInterface
+public interface RouteTarget {
+
+    /**
+     * Adds the route of one handling method
+     *
+     * @param _info - What we know about the handling method (read from its annotations or generated at build time)
+     * @param _invoker - Invokes the handling method on the handler instance
+     */
+    void route(RequestInfo _info, HandlerInvoker _invoker);
+}
@@ -0,0 +1,130 @@
+package rest.vertx;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The routes of a RestDispatcher, by path segment.  Each node has its literal segments in a map and at most one
+ * :param child, so finding the route of a request costs one lookup per segment of its path instead of a regex per
+ * registered route.  A literal segment wins over a :param at the same place, the :param is only tried if the rest of
+ * the path doesn't match under the literal one.
+ */
+final class RouteTree {
+
+    private final Node root = new Node();
+
+    /**
+     * @param _path - ie: /api/choirs/:id
+     * @param _endpoint
+     */
+    void add(String _path, Endpoint _endpoint) {
+        Node node = root;
+
+        List<String> paramNames = new ArrayList<String>();
+
+        for (String segment : segments(_path)) {
+            if (segment.indexOf('*') >= 0 || segment.indexOf('(') >= 0)
+                throw new IllegalArgumentException("Path " + _path + " has a wildcard or a regex, register it with RestVertx.register() instead");
+
+            if (segment.startsWith(":")) {
+                paramNames.add(segment.substring(1));
+
+                if (node.param == null)
+                    node.param = new Node();
+
+                node = node.param;
+            } else {
+                node = node.children.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+
+        Leaf leaf = new Leaf(_endpoint, paramNames.toArray(new String[paramNames.size()]));
+
+        if (node.leaves.putIfAbsent(_endpoint.httpMethod, leaf) != null)
+            throw new IllegalArgumentException(_endpoint.httpMethod + " " + _path + " is registered already");
+    }
+
+    /**
+     * @param _httpMethod - Upper case
+     * @param _path - The path of the request
+     * @param _params - Filled with the values of the :params of the route found, in path order
+     * @return The route, or null if there's none for this method and path
+     */
+    Leaf find(String _httpMethod, String _path, List<String> _params) {
+        return find(root, _httpMethod, segments(_path), 0, _params);
+    }
+
+    private static Leaf find(Node node, String httpMethod, List<String> segments, int i, List<String> params) {
+        if (i == segments.size())
+            return node.leaves.get(httpMethod);
+
+        String segment = segments.get(i);
+
+        Node literal = node.children.get(segment);
+
+        if (literal != null) {
+            Leaf toret = find(literal, httpMethod, segments, i + 1, params);
+
+            if (toret != null)
+                return toret;
+        }
+
+        if (node.param != null) {
+            params.add(segment);
+
+            Leaf toret = find(node.param, httpMethod, segments, i + 1, params);
+
+            if (toret != null)
+                return toret;
+
+            params.remove(params.size() - 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * The non empty segments of a path, so /a//b/ is the same as /a/b like it is for the Vertx router
+     */
+    private static List<String> segments(String path) {
+        List<String> toret = new ArrayList<String>();
+
+        int start = 0;
+
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                if (i > start)
+                    toret.add(path.substring(start, i));
+
+                start = i + 1;
+            }
+        }
+
+        return toret;
+    }
+
+    private static final class Node {
+
+        final Map<String, Node> children = new HashMap<String, Node>();
+
+        Node param;
+
+        // By http method
+        final Map<String, Leaf> leaves = new HashMap<String, Leaf>(4);
+    }
+
+    static final class Leaf {
+
+        final Endpoint endpoint;
+
+        // Names of the :params in path order
+        final String[] paramNames;
+
+        Leaf(Endpoint endpoint, String[] paramNames) {
+            this.endpoint = endpoint;
+            this.paramNames = paramNames;
+        }
+    }
+}
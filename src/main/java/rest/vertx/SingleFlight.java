@@ -0,0 +1,67 @@
+package rest.vertx;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The calls in flight for a route annotated with @Coalesce, by their arguments.  The first request for some arguments
+ * leads: it runs the handling method.  The ones that come in meanwhile follow: they wait for the leader's result
+ */
+final class SingleFlight {
+
+    private final Map<ResponseCache.Key, List<Follower>> inFlight = new HashMap<ResponseCache.Key, List<Follower>>();
+
+    /**
+     * @param _key
+     * @param _context - The follower's context, its handler is called back on it
+     * @param _handler - Gets the leader's result if the caller follows
+     * @return true if the caller leads and must call complete() once it has the result, false if it follows
+     */
+    synchronized boolean join(ResponseCache.Key _key, Context _context, Handler<Object> _handler) {
+        List<Follower> followers = inFlight.get(_key);
+
+        if (followers == null) {
+            inFlight.put(_key, new ArrayList<Follower>());
+            return true;
+        }
+
+        followers.add(new Follower(_context, _handler));
+
+        return false;
+    }
+
+    /**
+     * Hands the leader's result to the requests that followed it, each on its own context
+     *
+     * @param _key
+     * @param _result
+     */
+    void complete(ResponseCache.Key _key, Object _result) {
+        List<Follower> followers;
+
+        synchronized (this) {
+            followers = inFlight.remove(_key);
+        }
+
+        for (Follower follower : followers) {
+            follower.context.runOnContext(v -> follower.handler.handle(_result));
+        }
+    }
+
+    private static final class Follower {
+
+        final Context context;
+
+        final Handler<Object> handler;
+
+        Follower(Context context, Handler<Object> handler) {
+            this.context = context;
+            this.handler = handler;
+        }
+    }
+}
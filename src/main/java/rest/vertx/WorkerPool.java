@@ -0,0 +1,330 @@
+package rest.vertx;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.VertxException;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import rest.vertx.models.WorkerPoolMetrics;
+
+import java.util.ArrayDeque;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A dedicated pool of worker threads for @Blocking routes that name it (a bulkhead), so slow routes only queue up
+ * behind each other instead of starving or serializing the routes on the shared Vertx worker pool.
+ *
+ * Our Vertx version doesn't have WorkerExecutor, so this is a plain ThreadPoolExecutor with the same contract as
+ * executeBlocking(): the blocking code completes a Future on a pool thread and the result handler is called back on
+ * the caller's context.  The same goes for the virtual thread "pool", which starts a virtual thread per call.  The queue depth, active threads and the time calls wait for a thread are kept for
+ * {@link #metrics()}.
+ *
+ * Like the Vertx blocked thread checker does for its own pools, a timer looks at the calls running on the pool and
+ * warns, with the stack of the thread, about the ones going over the max execute time while they still run.  They're
+ * counted in the metrics as overruns, and as overrunning until they finish.
+ */
+final class WorkerPool {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkerPool.class);
+
+    // Checks the calls running on every pool
+    private static final Timer checker = new Timer("restvertx-worker-pool-checker", true);
+
+    // Milliseconds between the checks, at most
+    private static final long CHECK_INTERVAL = 1000;
+
+    private final String name;
+
+    private final int size;
+
+    // Calls taking longer than this are reported, like the Vertx blocked thread checker does for its worker pool
+    private final long maxExecuteTimeNanos;
+
+    // The calls running right now, by the thread running them
+    private final ConcurrentHashMap<Thread, Running> running = new ConcurrentHashMap<Thread, Running>();
+
+    private final TimerTask check;
+
+    private final ExecutorService executor;
+
+    // Calls running right now
+    private final AtomicInteger active = new AtomicInteger();
+
+    // Calls waiting for a thread, including the ones held back to keep a serial route in order
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicLong completed = new AtomicLong();
+
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private final AtomicLong overruns = new AtomicLong();
+
+    // The executors of the serial routes on this pool, by route
+    private final ConcurrentHashMap<String, Executor> serialExecutors = new ConcurrentHashMap<String, Executor>();
+
+    WorkerPool(String name, int size, long maxExecuteTime) {
+        this(name, size, maxExecuteTime, newThreadPool(name, size));
+    }
+
+    /**
+     * @param name
+     * @param size - 0 if the executor isn't bounded (ie: a thread per call)
+     * @param maxExecuteTime
+     * @param executor - Runs the calls
+     */
+    WorkerPool(String name, int size, long maxExecuteTime, ExecutorService executor) {
+        this.name = name;
+        this.size = size;
+        this.maxExecuteTimeNanos = TimeUnit.MILLISECONDS.toNanos(maxExecuteTime);
+        this.executor = executor;
+
+        this.check = new TimerTask() {
+            @Override
+            public void run() {
+                checkRunning();
+            }
+        };
+
+        long interval = Math.max(1, Math.min(CHECK_INTERVAL, maxExecuteTime));
+
+        checker.schedule(check, interval, interval);
+    }
+
+    private static ExecutorService newThreadPool(String name, int size) {
+        AtomicInteger threads = new AtomicInteger();
+
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, "restvertx-" + name + "-" + threads.incrementAndGet());
+
+            thread.setDaemon(true);
+
+            return thread;
+        };
+
+        ThreadPoolExecutor toret = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), factory);
+
+        toret.allowCoreThreadTimeOut(true);
+
+        return toret;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * An executor that runs the calls given to it one at a time, in order, on this pool.  What serial means for a
+     * route on a dedicated pool: its own calls are ordered, other routes aren't held up by them.  The instances of the
+     * route compiled for each event loop get the same one
+     *
+     * @param route - From RestVertx.getRouteKey()
+     */
+    Executor serial(String route) {
+        return serialExecutors.computeIfAbsent(route, r -> new SerialExecutor(executor));
+    }
+
+    /**
+     * Runs the blocking code on this pool
+     *
+     * @param _context - The context to call the result handler back on
+     * @param _blockingCode
+     * @param _ordered - The executor from serial() to keep the calls in order, or null to run them in parallel
+     * @param _resultHandler
+     */
+    <T> void executeBlocking(Context _context, Handler<Future<T>> _blockingCode, Executor _ordered, Handler<AsyncResult<T>> _resultHandler) {
+        long queuedAt = System.nanoTime();
+
+        queued.incrementAndGet();
+
+        Runnable task = () -> {
+            Running call = new Running(Thread.currentThread(), System.nanoTime());
+
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            recordWait(call.start - queuedAt);
+
+            running.put(call.thread, call);
+
+            Future<T> future = Future.future();
+
+            try {
+                _blockingCode.handle(future);
+            } catch (Throwable e) {
+                if (!future.isComplete())
+                    future.fail(e);
+            } finally {
+                running.remove(call.thread);
+
+                // Went over between two checks, it still counts
+                if (System.nanoTime() - call.start > maxExecuteTimeNanos && call.reported.compareAndSet(false, true))
+                    overruns.incrementAndGet();
+
+                active.decrementAndGet();
+                completed.incrementAndGet();
+            }
+
+            future.setHandler(result -> _context.runOnContext(v -> _resultHandler.handle(result)));
+        };
+
+        try {
+            ((_ordered != null) ? _ordered : executor).execute(task);
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+
+            _resultHandler.handle(Future.failedFuture(e));
+        }
+    }
+
+    /**
+     * Warns about the calls that went over the max execute time since the last check, once per call
+     */
+    private void checkRunning() {
+        long now = System.nanoTime();
+
+        for (Running call : running.values()) {
+            long took = now - call.start;
+
+            if (took <= maxExecuteTimeNanos || !call.reported.compareAndSet(false, true))
+                continue;
+
+            overruns.incrementAndGet();
+
+            // Where it's stuck
+            VertxException stackTrace = new VertxException("Thread blocked");
+
+            stackTrace.setStackTrace(call.thread.getStackTrace());
+
+            log.warn("Worker pool " + name + ": " + call.thread.getName() + " has been running a call for "
+                    + TimeUnit.NANOSECONDS.toMillis(took) + "ms, limit is "
+                    + TimeUnit.NANOSECONDS.toMillis(maxExecuteTimeNanos) + "ms", stackTrace);
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.addAndGet(waitNanos);
+
+        long max;
+
+        while (waitNanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            // Someone else raised it meanwhile, try again
+        }
+    }
+
+    WorkerPoolMetrics metrics() {
+        long done = completed.get();
+
+        WorkerPoolMetrics toret = new WorkerPoolMetrics();
+
+        toret.setName(name);
+        toret.setSize(size);
+        toret.setActiveThreads(active.get());
+        toret.setQueueDepth(queued.get());
+        toret.setCompleted(done);
+        toret.setAverageWaitMillis((done == 0) ? 0 : totalWaitNanos.get() / (double) done / 1000000);
+        toret.setMaxWaitMillis(maxWaitNanos.get() / 1000000.0);
+        toret.setOverruns(overruns.get());
+        toret.setOverrunning(overrunning());
+
+        return toret;
+    }
+
+    /**
+     * The calls still running that were counted as overruns (by the last check, so it lags by up to its interval)
+     */
+    private int overrunning() {
+        int toret = 0;
+
+        for (Running call : running.values()) {
+            if (call.reported.get())
+                toret++;
+        }
+
+        return toret;
+    }
+
+    void close() {
+        check.cancel();
+
+        executor.shutdown();
+    }
+
+    /**
+     * A call running on the pool
+     */
+    private static final class Running {
+
+        final Thread thread;
+
+        final long start;
+
+        // Counted as an overrun already
+        final AtomicBoolean reported = new AtomicBoolean();
+
+        Running(Thread thread, long start) {
+            this.thread = thread;
+            this.start = start;
+        }
+    }
+
+    /**
+     * Hands the tasks to the pool one at a time, the next one when the previous one is done
+     */
+    private static final class SerialExecutor implements Executor {
+
+        private final ExecutorService executor;
+
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+
+        private Runnable active;
+
+        SerialExecutor(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            if (executor.isShutdown())
+                throw new RejectedExecutionException("Worker pool is closed");
+
+            tasks.add(() -> {
+                try {
+                    task.run();
+                } finally {
+                    next();
+                }
+            });
+
+            if (active == null)
+                next();
+        }
+
+        private synchronized void next() {
+            active = tasks.poll();
+
+            if (active != null) {
+                try {
+                    executor.execute(active);
+                } catch (RejectedExecutionException e) {
+                    // The pool was closed while these were waiting, finish them on the thread that ran the last one
+                    active.run();
+                }
+            }
+        }
+    }
+}
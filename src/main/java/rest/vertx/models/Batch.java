@@ -0,0 +1,66 @@
+package rest.vertx.models;
+
+import rest.vertx.HandlerInvoker;
+
+public class Batch {
+
+	/* Name of the batch method */
+	private String method;
+	
+	/* Calls in one batch at most */
+	private int maxSize = 100;
+	
+	/* Milliseconds the first call of a batch waits for others to join it */
+	private long maxDelay = 5;
+	
+	/* Invokes the batch method on the handler instance */
+	private HandlerInvoker invoker;
+	
+	public Batch()
+	{
+		
+	}
+	
+	public Batch(String method, int maxSize, long maxDelay, HandlerInvoker invoker)
+	{
+		setMethod(method);
+		
+		setMaxSize(maxSize);
+		
+		setMaxDelay(maxDelay);
+		
+		setInvoker(invoker);
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public void setMethod(String method) {
+		this.method = method;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public long getMaxDelay() {
+		return maxDelay;
+	}
+
+	public void setMaxDelay(long maxDelay) {
+		this.maxDelay = maxDelay;
+	}
+
+	public HandlerInvoker getInvoker() {
+		return invoker;
+	}
+
+	public void setInvoker(HandlerInvoker invoker) {
+		this.invoker = invoker;
+	}
+}
@@ -6,6 +6,21 @@ public class Blocking {
 	
 	private boolean serial;
 	
+	/* Name of the dedicated worker pool (null for the shared Vertx one) */
+	private String pool;
+	
+	/* Threads of the dedicated worker pool */
+	private int poolSize = 20;
+	
+	/* Milliseconds a call can take on the dedicated worker pool before we warn about it */
+	private long maxExecuteTime = 60000;
+	
+	/* Run each call on its own virtual thread */
+	private boolean virtual;
+	
+	/* Name of the parameter the calls are kept in order by (null to use serial) */
+	private String key;
+	
 	public Blocking()
 	{
 		setBlocking(false);
@@ -17,6 +32,17 @@ public class Blocking {
 		
 		setSerial(serial);
 	}
+	
+	public Blocking(boolean blocking, boolean serial, String pool, int poolSize, long maxExecuteTime)
+	{
+		this(blocking, serial);
+		
+		setPool(pool);
+		
+		setPoolSize(poolSize);
+		
+		setMaxExecuteTime(maxExecuteTime);
+	}
 
 	public boolean isBlocking() {
 		return blocking;
@@ -33,4 +59,44 @@ public class Blocking {
 	public void setSerial(boolean serial) {
 		this.serial = serial;
 	}
+
+	public String getPool() {
+		return pool;
+	}
+
+	public void setPool(String pool) {
+		this.pool = pool;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	public long getMaxExecuteTime() {
+		return maxExecuteTime;
+	}
+
+	public void setMaxExecuteTime(long maxExecuteTime) {
+		this.maxExecuteTime = maxExecuteTime;
+	}
+
+	public boolean isVirtual() {
+		return virtual;
+	}
+
+	public void setVirtual(boolean virtual) {
+		this.virtual = virtual;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public void setKey(String key) {
+		this.key = key;
+	}
 }
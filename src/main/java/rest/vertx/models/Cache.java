@@ -0,0 +1,38 @@
+package rest.vertx.models;
+
+public class Cache {
+
+	/* Seconds a cached response is fresh */
+	private long ttl;
+	
+	/* Seconds a stale response is still served while it's refreshed in the background */
+	private long staleWhileRevalidate;
+	
+	public Cache()
+	{
+		
+	}
+	
+	public Cache(long ttl, long staleWhileRevalidate)
+	{
+		setTtl(ttl);
+		
+		setStaleWhileRevalidate(staleWhileRevalidate);
+	}
+
+	public long getTtl() {
+		return ttl;
+	}
+
+	public void setTtl(long ttl) {
+		this.ttl = ttl;
+	}
+
+	public long getStaleWhileRevalidate() {
+		return staleWhileRevalidate;
+	}
+
+	public void setStaleWhileRevalidate(long staleWhileRevalidate) {
+		this.staleWhileRevalidate = staleWhileRevalidate;
+	}
+}
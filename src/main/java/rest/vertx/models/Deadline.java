@@ -0,0 +1,99 @@
+package rest.vertx.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handed to a handling method that takes one as a parameter (it's not bound from the request).  It's cancelled when
+ * the route's @Timeout runs out or the client goes away, so a long running handling method can check it now and then
+ * and give up on work nobody is waiting for anymore.
+ */
+public class Deadline {
+
+	/* System.nanoTime() when the time is up, Long.MAX_VALUE if the route has no timeout */
+	private final long expiresAt;
+	
+	private volatile boolean cancelled;
+	
+	/* Called once cancelled */
+	private List<Runnable> listeners;
+	
+	/**
+	 * @param timeoutMillis - 0 for no timeout
+	 */
+	public Deadline(long timeoutMillis)
+	{
+		this.expiresAt = (timeoutMillis > 0) ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : Long.MAX_VALUE;
+	}
+	
+	/**
+	 * @return true once the request timed out or the client went away
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+	
+	/**
+	 * @return Milliseconds left before the request times out (Long.MAX_VALUE if it doesn't), 0 if cancelled
+	 */
+	public long getRemainingMillis() {
+		if (cancelled)
+			return 0;
+		
+		if (expiresAt == Long.MAX_VALUE)
+			return Long.MAX_VALUE;
+		
+		return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAt - System.nanoTime()));
+	}
+	
+	/**
+	 * Bails out of the handling method if cancelled
+	 * 
+	 * @throws CancellationException
+	 */
+	public void throwIfCancelled() {
+		if (cancelled)
+			throw new CancellationException("Request cancelled");
+	}
+	
+	/**
+	 * Runs the action once cancelled (right away if it already is), ie: to abort a query.  It runs on the thread that
+	 * cancels, so it shouldn't block
+	 * 
+	 * @param action
+	 */
+	public void onCancel(Runnable action) {
+		synchronized (this) {
+			if (!cancelled) {
+				if (listeners == null)
+					listeners = new ArrayList<Runnable>();
+				
+				listeners.add(action);
+				
+				return;
+			}
+		}
+		
+		action.run();
+	}
+	
+	public void cancel() {
+		List<Runnable> toRun;
+		
+		synchronized (this) {
+			if (cancelled)
+				return;
+			
+			cancelled = true;
+			
+			toRun = listeners;
+			
+			listeners = null;
+		}
+		
+		if (toRun != null)
+			toRun.forEach(Runnable::run);
+	}
+}
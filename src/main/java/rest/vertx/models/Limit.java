@@ -0,0 +1,88 @@
+package rest.vertx.models;
+
+public class Limit {
+
+	/* Requests handled at once to start with (or always, if not adaptive) */
+	private int limit = 20;
+	
+	private int min = 1;
+	
+	private int max = 1000;
+	
+	/* Adapt the limit to the observed latency */
+	private boolean adaptive = true;
+	
+	/* Status of the rejected requests */
+	private int status = 503;
+	
+	/* Seconds the rejected clients are told to wait before trying again */
+	private long retryAfter = 1;
+	
+	public Limit()
+	{
+		
+	}
+	
+	public Limit(int limit, int min, int max, boolean adaptive, int status, long retryAfter)
+	{
+		setLimit(limit);
+		
+		setMin(min);
+		
+		setMax(max);
+		
+		setAdaptive(adaptive);
+		
+		setStatus(status);
+		
+		setRetryAfter(retryAfter);
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+
+	public int getMin() {
+		return min;
+	}
+
+	public void setMin(int min) {
+		this.min = min;
+	}
+
+	public int getMax() {
+		return max;
+	}
+
+	public void setMax(int max) {
+		this.max = max;
+	}
+
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+
+	public void setAdaptive(boolean adaptive) {
+		this.adaptive = adaptive;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
+	public long getRetryAfter() {
+		return retryAfter;
+	}
+
+	public void setRetryAfter(long retryAfter) {
+		this.retryAfter = retryAfter;
+	}
+}
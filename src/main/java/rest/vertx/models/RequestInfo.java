@@ -1,22 +1,202 @@
 package rest.vertx.models;
 
+/**
+ * Everything RestVertx needs to know about a handling method to register its route, whether it was read from the
+ * annotations at runtime or generated at build time by the annotation processor
+ */
 public class RequestInfo {
 
 	private Blocking blocking;
-	
+
+	/* The handling class, set when the class is registered (null if the route was compiled on its own) */
+	private Class<?> handlerClass;
+
+	/* Name of the handling method, used to guess the http method if it isn't set */
+	private String methodName;
+
+	/* Value of the Path annotation */
+	private String path;
+
+	/* Value of the Method annotation (null if not set) */
+	private String httpMethod;
+
+	/* Value of the ResultType annotation (null if not set) */
+	private String resultType;
+
+	/* Values of the CORS annotation(s) (null if not set) */
+	private String[] cors;
+
+	/* Parameter names of the handling method (an entry is null if the name wasn't kept by the compiler) */
+	private String[] paramNames;
+
+	/* Parameter types of the handling method */
+	private Class<?>[] paramTypes;
+
+	/* Return type of the handling method */
+	private Class<?> returnType;
+
+	/* Value of the StreamBody annotation (false if not set) */
+	private boolean streamBody;
+
+	/* Values of the Cache annotation (null if not set) */
+	private Cache cache;
+
+	/* Value of the Coalesce annotation (false if not set) */
+	private boolean coalesce;
+
+	/* Values of the Batch annotation, with the invoker of the batch method (null if not set) */
+	private Batch batch;
+
+	/* Values of the Limit annotation (null if not set) */
+	private Limit limit;
+
+	/* Milliseconds from the Timeout annotation (0 if not set) */
+	private long timeout;
+
+	/* Bytes from the MaxBodySize annotation (0 if not set) */
+	private long maxBodySize;
+
 	public RequestInfo() {
-		
+
 	}
-	
+
 	public RequestInfo(Blocking blocking) {
 		this.blocking = blocking;
 	}
 
+	public Class<?> getHandlerClass() {
+		return handlerClass;
+	}
+
+	public void setHandlerClass(Class<?> handlerClass) {
+		this.handlerClass = handlerClass;
+	}
+
 	public Blocking getBlocking() {
 		return blocking;
 	}
 
 	public void setBlocking(Blocking blocking) {
 		this.blocking = blocking;
-	}	
+	}
+
+	public String getMethodName() {
+		return methodName;
+	}
+
+	public void setMethodName(String methodName) {
+		this.methodName = methodName;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	public String getHttpMethod() {
+		return httpMethod;
+	}
+
+	public void setHttpMethod(String httpMethod) {
+		this.httpMethod = httpMethod;
+	}
+
+	public String getResultType() {
+		return resultType;
+	}
+
+	public void setResultType(String resultType) {
+		this.resultType = resultType;
+	}
+
+	public String[] getCors() {
+		return cors;
+	}
+
+	public void setCors(String[] cors) {
+		this.cors = cors;
+	}
+
+	public String[] getParamNames() {
+		return paramNames;
+	}
+
+	public void setParamNames(String[] paramNames) {
+		this.paramNames = paramNames;
+	}
+
+	public Class<?>[] getParamTypes() {
+		return paramTypes;
+	}
+
+	public void setParamTypes(Class<?>[] paramTypes) {
+		this.paramTypes = paramTypes;
+	}
+
+	public Class<?> getReturnType() {
+		return returnType;
+	}
+
+	public void setReturnType(Class<?> returnType) {
+		this.returnType = returnType;
+	}
+
+	public boolean isStreamBody() {
+		return streamBody;
+	}
+
+	public void setStreamBody(boolean streamBody) {
+		this.streamBody = streamBody;
+	}
+
+	public Cache getCache() {
+		return cache;
+	}
+
+	public void setCache(Cache cache) {
+		this.cache = cache;
+	}
+
+	public boolean isCoalesce() {
+		return coalesce;
+	}
+
+	public void setCoalesce(boolean coalesce) {
+		this.coalesce = coalesce;
+	}
+
+	public Batch getBatch() {
+		return batch;
+	}
+
+	public void setBatch(Batch batch) {
+		this.batch = batch;
+	}
+
+	public Limit getLimit() {
+		return limit;
+	}
+
+	public void setLimit(Limit limit) {
+		this.limit = limit;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	public long getMaxBodySize() {
+		return maxBodySize;
+	}
+
+	public void setMaxBodySize(long maxBodySize) {
+		this.maxBodySize = maxBodySize;
+	}
 }
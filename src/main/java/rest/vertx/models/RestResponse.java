@@ -1,7 +1,12 @@
 package rest.vertx.models;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 
+import io.netty.buffer.Unpooled;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+
 /**
  * This class permits the user to give more information about the answer he wants to send to the client
  * For example, he could change the status code, or add additional headers ....
@@ -24,6 +29,15 @@ public class RestResponse {
     /* Map of headers */
     private Map<String, String> headers;
 
+    /* Headers that can be sent more than once, ie: Set-Cookie */
+    private MultiMap multiHeaders;
+
+    /* An object to send as Json instead of the body, serialized straight into the response buffer */
+    private Object entity;
+
+    /* A binary body to send as is instead of the body, ie: an image or a payload we already encoded */
+    private Buffer buffer;
+
     public RestResponse(String body, int statusCode, Map<String, String> headers) {
         this.body = body;
         this.statusCode = statusCode;
@@ -41,12 +55,51 @@ public class RestResponse {
         this.statusCode = statusCode;
     }
 
+    public RestResponse(Object entity, int statusCode, Map<String, String> headers) {
+        this.entity = entity;
+        this.statusCode = statusCode;
+        this.headers = headers;
+    }
+
+    public RestResponse(Object entity, int statusCode) {
+        this.entity = entity;
+        this.statusCode = statusCode;
+    }
+
+    /* Object to send as Json, assuming that the status code is 200 (no error) */
+    public RestResponse(Object entity) {
+        this.entity = entity;
+        this.statusCode = 200;
+    }
+
     /* Default constructor, assuming that the status code is 200 (no error) */
     public RestResponse(String body) {
         this.body = body;
         this.statusCode = 200;
     }
 
+    /**
+     * A response with a binary body, sent as is.  Keep the Buffer around to serve the same payload again, it isn't
+     * consumed by sending it
+     */
+    public static RestResponse binary(Buffer buffer, int statusCode) {
+        RestResponse toret = new RestResponse((String) null, statusCode);
+
+        toret.setBuffer(buffer);
+
+        return toret;
+    }
+
+    /* The bytes are wrapped, not copied, so don't change them while they're being sent */
+    public static RestResponse binary(byte[] bytes, int statusCode) {
+        return binary(Buffer.buffer(Unpooled.wrappedBuffer(bytes)), statusCode);
+    }
+
+    /* The remaining bytes of the ByteBuffer (direct or not) are wrapped, not copied */
+    public static RestResponse binary(ByteBuffer byteBuffer, int statusCode) {
+        return binary(Buffer.buffer(Unpooled.wrappedBuffer(byteBuffer)), statusCode);
+    }
+
     public String getBody() {
         return body;
     }
@@ -71,6 +124,47 @@ public class RestResponse {
 		this.headers = headers;
 	}
 
+	public MultiMap getMultiHeaders() {
+		return multiHeaders;
+	}
+
+	public void setMultiHeaders(MultiMap multiHeaders) {
+		this.multiHeaders = multiHeaders;
+	}
+
+	/**
+	 * Adds a header value, keeping any value already added with the same name
+	 * 
+	 * @param name
+	 * @param value
+	 * @return this, to chain the calls
+	 */
+	public RestResponse addHeader(String name, String value) {
+		if (multiHeaders == null) {
+			multiHeaders = MultiMap.caseInsensitiveMultiMap();
+		}
+		
+		multiHeaders.add(name, value);
+		
+		return this;
+	}
+
+	public Object getEntity() {
+		return entity;
+	}
+
+	public void setEntity(Object entity) {
+		this.entity = entity;
+	}
+
+	public Buffer getBuffer() {
+		return buffer;
+	}
+
+	public void setBuffer(Buffer buffer) {
+		this.buffer = buffer;
+	}
+
 	public String getStatusMessage() {
 		return statusMessage;
 	}
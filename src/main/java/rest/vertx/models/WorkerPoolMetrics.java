@@ -0,0 +1,104 @@
+package rest.vertx.models;
+
+/**
+ * A snapshot of what a dedicated worker pool is doing, see RestVertx.getWorkerPoolMetrics()
+ */
+public class WorkerPoolMetrics {
+
+	private String name;
+	
+	/* Threads of the pool, 0 if it starts a (virtual) thread per call */
+	private int size;
+	
+	/* Threads running a call right now */
+	private int activeThreads;
+	
+	/* Calls waiting for a thread */
+	private int queueDepth;
+	
+	/* Calls run so far */
+	private long completed;
+	
+	/* How long calls waited for a thread, on average and at worst */
+	private double averageWaitMillis;
+	
+	private double maxWaitMillis;
+	
+	/* Calls that took longer than the max execute time of the pool, counted as soon as they go over */
+	private long overruns;
+	
+	/* Calls counted as overruns that are still running */
+	private int overrunning;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	public int getActiveThreads() {
+		return activeThreads;
+	}
+
+	public void setActiveThreads(int activeThreads) {
+		this.activeThreads = activeThreads;
+	}
+
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	public void setQueueDepth(int queueDepth) {
+		this.queueDepth = queueDepth;
+	}
+
+	public long getCompleted() {
+		return completed;
+	}
+
+	public void setCompleted(long completed) {
+		this.completed = completed;
+	}
+
+	public double getAverageWaitMillis() {
+		return averageWaitMillis;
+	}
+
+	public void setAverageWaitMillis(double averageWaitMillis) {
+		this.averageWaitMillis = averageWaitMillis;
+	}
+
+	public double getMaxWaitMillis() {
+		return maxWaitMillis;
+	}
+
+	public void setMaxWaitMillis(double maxWaitMillis) {
+		this.maxWaitMillis = maxWaitMillis;
+	}
+
+	public long getOverruns() {
+		return overruns;
+	}
+
+	public void setOverruns(long overruns) {
+		this.overruns = overruns;
+	}
+
+	public int getOverrunning() {
+		return overrunning;
+	}
+
+	public void setOverrunning(int overrunning) {
+		this.overrunning = overrunning;
+	}
+}
@@ -0,0 +1,308 @@
+package rest.vertx.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import rest.vertx.RouteRegistrar;
+import rest.vertx.Annotations.Base;
+import rest.vertx.Annotations.Batch;
+import rest.vertx.Annotations.Blocking;
+import rest.vertx.Annotations.CORS;
+import rest.vertx.Annotations.Cache;
+import rest.vertx.Annotations.Coalesce;
+import rest.vertx.Annotations.Limit;
+import rest.vertx.Annotations.MaxBodySize;
+import rest.vertx.Annotations.Method;
+import rest.vertx.Annotations.Path;
+import rest.vertx.Annotations.RestIgnore;
+import rest.vertx.Annotations.ResultType;
+import rest.vertx.Annotations.StreamBody;
+import rest.vertx.Annotations.Timeout;
+
+/**
+ * Optional annotation processor that generates a {@link RouteRegistrar} for every class annotated with @Base.
+ *
+ * The generated registrar wires the routes with the values of the annotations as constants, the parameter names as
+ * written in the source (so it doesn't matter whether the program is compiled with -parameters) and a direct call to
+ * each handling method, so neither registering nor serving a request uses reflection.
+ *
+ * It isn't registered as a service, so it only runs when you ask for it, ie: with the maven-compiler-plugin:
+ *
+ * <pre>
+ * &lt;annotationProcessors&gt;
+ *     &lt;annotationProcessor&gt;rest.vertx.processor.RouteProcessor&lt;/annotationProcessor&gt;
+ * &lt;/annotationProcessors&gt;
+ * </pre>
+ */
+@SupportedAnnotationTypes("rest.vertx.Annotations.Base")
+public class RouteProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Base.class)) {
+            if (element.getKind() != ElementKind.CLASS)
+                continue;
+
+            TypeElement type = (TypeElement) element;
+
+            // RestVertx looks the registrar up by the class of the handler instance, which can't be an abstract class
+            if (type.getModifiers().contains(Modifier.ABSTRACT) || !isAccessible(type))
+                continue;
+
+            try {
+                generate(type);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Unable to generate the RestVertx registrar: " + e.getMessage(), type);
+            }
+        }
+
+        // Other processors may want @Base too
+        return false;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        Elements elements = processingEnv.getElementUtils();
+
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+
+        String binaryName = elements.getBinaryName(type).toString();
+
+        // Outer$Inner_RestVertxRegistrar for nested classes, so the name matches what RestVertx.register() looks for
+        String registrarName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                + RouteRegistrar.SUFFIX;
+
+        String handlerType = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(
+                (packageName.isEmpty() ? "" : packageName + ".") + registrarName, type);
+
+        try (PrintWriter out = new PrintWriter(file.openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+
+            out.println("/**");
+            out.println(" * Registers the routes of " + handlerType + " without reflection.");
+            out.println(" * Generated by " + RouteProcessor.class.getName() + ", do not edit");
+            out.println(" */");
+            out.println("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })");
+            // Fully qualified names only, so nothing clashes with the classes of the handling class's package
+            out.println("public final class " + registrarName + " implements rest.vertx.RouteRegistrar<" + handlerType + "> {");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void register(rest.vertx.RouteTarget _target, " + handlerType + " _toInvoke) {");
+            out.println("        rest.vertx.models.RequestInfo info;");
+
+            for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+                if (!isRoute(method))
+                    continue;
+
+                out.println();
+                generateRoute(out, type, method);
+            }
+
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private void generateRoute(PrintWriter out, TypeElement type, ExecutableElement method) {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+
+        Blocking blocking = method.getAnnotation(Blocking.class);
+
+        if (blocking == null) {
+            out.println("        info = new rest.vertx.models.RequestInfo(new rest.vertx.models.Blocking());");
+        } else {
+            String blockingArgs = blocking.value().toLowerCase().equals("true") + ", " + blocking.serial().toLowerCase().equals("true");
+
+            if (!blocking.pool().isEmpty()) {
+                blockingArgs += ", " + elements.getConstantExpression(blocking.pool()) + ", " + Integer.parseInt(blocking.poolSize()) + ", "
+                        + Long.parseLong(blocking.maxExecuteTime()) + "L";
+            }
+
+            out.println("        info = new rest.vertx.models.RequestInfo(new rest.vertx.models.Blocking(" + blockingArgs + "));");
+
+            if (blocking.virtual().toLowerCase().equals("true"))
+                out.println("        info.getBlocking().setVirtual(true);");
+
+            if (!blocking.key().isEmpty())
+                out.println("        info.getBlocking().setKey(" + elements.getConstantExpression(blocking.key()) + ");");
+        }
+
+        out.println("        info.setMethodName(" + elements.getConstantExpression(method.getSimpleName().toString()) + ");");
+        out.println("        info.setPath(" + elements.getConstantExpression(method.getAnnotation(Path.class).value()) + ");");
+
+        if (method.getAnnotation(Method.class) != null)
+            out.println("        info.setHttpMethod(" + elements.getConstantExpression(method.getAnnotation(Method.class).value()) + ");");
+
+        if (method.getAnnotation(ResultType.class) != null)
+            out.println("        info.setResultType(" + elements.getConstantExpression(method.getAnnotation(ResultType.class).value()) + ");");
+
+        if (method.getAnnotation(CORS.class) != null)
+            out.println("        info.setCors(new String[] { " + elements.getConstantExpression(method.getAnnotation(CORS.class).value()) + " });");
+
+        if (method.getAnnotation(StreamBody.class) != null && method.getAnnotation(StreamBody.class).value().toLowerCase().equals("true"))
+            out.println("        info.setStreamBody(true);");
+
+        Cache cache = method.getAnnotation(Cache.class);
+
+        if (cache != null)
+            out.println("        info.setCache(new rest.vertx.models.Cache(" + Long.parseLong(cache.value()) + "L, "
+                    + Long.parseLong(cache.staleWhileRevalidate()) + "L));");
+
+        if (method.getAnnotation(Coalesce.class) != null && method.getAnnotation(Coalesce.class).value().toLowerCase().equals("true"))
+            out.println("        info.setCoalesce(true);");
+
+        if (method.getAnnotation(Timeout.class) != null)
+            out.println("        info.setTimeout(" + Long.parseLong(method.getAnnotation(Timeout.class).value()) + "L);");
+
+        if (method.getAnnotation(MaxBodySize.class) != null)
+            out.println("        info.setMaxBodySize(" + Long.parseLong(method.getAnnotation(MaxBodySize.class).value()) + "L);");
+
+        Limit limit = method.getAnnotation(Limit.class);
+
+        if (limit != null)
+            out.println("        info.setLimit(new rest.vertx.models.Limit(" + Integer.parseInt(limit.value()) + ", " + Integer.parseInt(limit.min()) + ", "
+                    + Integer.parseInt(limit.max()) + ", " + limit.adaptive().toLowerCase().equals("true") + ", "
+                    + Integer.parseInt(limit.status()) + ", " + Long.parseLong(limit.retryAfter()) + "L));");
+
+        Batch batch = method.getAnnotation(Batch.class);
+
+        if (batch != null)
+            generateBatch(out, type, method, batch);
+
+        List<? extends VariableElement> params = method.getParameters();
+
+        StringBuilder names = new StringBuilder();
+        StringBuilder classes = new StringBuilder();
+        StringBuilder arguments = new StringBuilder();
+
+        for (int i = 0; i < params.size(); i++) {
+            TypeMirror paramType = types.erasure(params.get(i).asType());
+
+            if (i > 0) {
+                names.append(", ");
+                classes.append(", ");
+                arguments.append(", ");
+            }
+
+            names.append(elements.getConstantExpression(params.get(i).getSimpleName().toString()));
+            classes.append(paramType).append(".class");
+
+            // Cast to the exact parameter type so overloads resolve to this method.  Primitives come in boxed
+            if (paramType.getKind().isPrimitive()) {
+                arguments.append("(").append(paramType).append(") (")
+                        .append(types.boxedClass((PrimitiveType) paramType).getQualifiedName()).append(") ");
+            } else {
+                arguments.append("(").append(paramType).append(") ");
+            }
+
+            arguments.append("arguments[").append(i).append("]");
+        }
+
+        out.println("        info.setParamNames(new String[] { " + names + " });");
+        out.println("        info.setParamTypes(new Class<?>[] { " + classes + " });");
+
+        out.println("        info.setReturnType(" + types.erasure(method.getReturnType()) + ".class);");
+
+        String call = receiver(method) + "." + method.getSimpleName() + "(" + arguments + ")";
+
+        if (method.getReturnType().getKind() == TypeKind.VOID) {
+            out.println("        _target.route(info, arguments -> { " + call + "; return null; });");
+        } else {
+            out.println("        _target.route(info, arguments -> " + call + ");");
+        }
+    }
+
+    /**
+     * Same rule as RestVertx.getBatchMethod(): a public method of the handling class taking a List
+     */
+    private void generateBatch(PrintWriter out, TypeElement type, ExecutableElement method, Batch batch) {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+
+        TypeMirror list = types.erasure(elements.getTypeElement("java.util.List").asType());
+
+        for (ExecutableElement candidate : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+            if (!candidate.getSimpleName().contentEquals(batch.value()) || !candidate.getModifiers().contains(Modifier.PUBLIC)
+                    || candidate.getParameters().size() != 1)
+                continue;
+
+            TypeMirror paramType = types.erasure(candidate.getParameters().get(0).asType());
+
+            if (!types.isAssignable(list, paramType))
+                continue;
+
+            out.println("        info.setBatch(new rest.vertx.models.Batch(" + elements.getConstantExpression(batch.value()) + ", "
+                    + Integer.parseInt(batch.maxSize()) + ", " + Long.parseLong(batch.maxDelay()) + "L, arguments -> " + receiver(candidate)
+                    + "." + batch.value() + "((" + paramType + ") arguments[0])));");
+
+            return;
+        }
+
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "No public method " + batch.value() + "(List) to batch the calls with", method);
+    }
+
+    /**
+     * Same rules as RestVertx.register(): public methods (static ones too, like Class.getMethods() finds) with a Path
+     * that aren't ignored
+     */
+    private boolean isRoute(ExecutableElement method) {
+        return method.getModifiers().contains(Modifier.PUBLIC)
+                && method.getAnnotation(Path.class) != null
+                && method.getAnnotation(RestIgnore.class) == null;
+    }
+
+    /**
+     * What the method is called on: the handler instance, or the class that declares it if it's static
+     */
+    private String receiver(ExecutableElement method) {
+        if (!method.getModifiers().contains(Modifier.STATIC))
+            return "_toInvoke";
+
+        return processingEnv.getTypeUtils().erasure(method.getEnclosingElement().asType()).toString();
+    }
+
+    /**
+     * The registrar lives in the same package, so the handling class (and any class it's nested in) can't be private
+     */
+    private boolean isAccessible(TypeElement type) {
+        for (Element e = type; e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+            if (e.getModifiers().contains(Modifier.PRIVATE))
+                return false;
+        }
+
+        return true;
+    }
+}
@@ -1,13 +1,34 @@
 package tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.fluent.Response;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.util.EntityUtils;
+import org.junit.Assume;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.http.HttpServer;
 import io.vertx.ext.web.Router;
-import io.vertx.ext.web.handler.BodyHandler;
+import rest.vertx.RestVertx;
+import rest.vertx.models.WorkerPoolMetrics;
 import tests.handlers.AnnotationHandler;
 import tests.models.Address;
 import tests.models.Choir;
@@ -79,6 +100,458 @@ public class Annotations extends AbstractVerticle
 		  assertEquals(testChoir.getAddress().getState(), resultChoir.getAddress().getState());
 	  }
 	  
+	  @Test
+	  public void testEntityResponse() throws IOException
+	  {
+		  Choir testChoir = new Choir();
+		  
+		  Address choirAddress = new Address();
+		  
+		  choirAddress.setCity("Omaha");
+		  
+		  choirAddress.setState("NE");
+
+		  testChoir.setChoirName("Omaha Children's Choir");
+		  
+		  testChoir.setAddress(choirAddress);
+		  
+		  HttpResponse response = TestUtility.postGetResponse(choirBase + "choirEntity", testChoir.toJson(false)).returnResponse();
+		  
+		  byte[] body = EntityUtils.toByteArray(response.getEntity());
+		  
+		  assertEquals(200, response.getStatusLine().getStatusCode());
+		  
+		  assertEquals(String.valueOf(body.length), response.getFirstHeader("content-length").getValue());
+		  
+		  assertTrue(response.getFirstHeader("content-type").getValue().startsWith("application/json"));
+
+		  Choir resultChoir = TestUtility.toChoirFromJson(new String(body, StandardCharsets.UTF_8));
+		  
+		  assertEquals(testChoir.getChoirName(), resultChoir.getChoirName());
+		  
+		  assertEquals(testChoir.getAddress().getCity(), resultChoir.getAddress().getCity());
+	  }
+	  
+	  @Test
+	  public void testEntityInRestResponse() throws IOException
+	  {
+		  Choir testChoir = new Choir();
+
+		  testChoir.setChoirName("Omaha Children's Choir");
+		  
+		  HttpResponse response = TestUtility.postGetResponse(choirBase + "choirEntityCreated", testChoir.toJson(false)).returnResponse();
+		  
+		  assertEquals(201, response.getStatusLine().getStatusCode());
+
+		  Choir resultChoir = TestUtility.toChoirFromJson(EntityUtils.toString(response.getEntity()));
+		  
+		  assertEquals(testChoir.getChoirName(), resultChoir.getChoirName());
+	  }
+	  
+	  @Test
+	  public void testStreamedJsonArray() throws IOException
+	  {
+		  String result = TestUtility.get(choirBase + "numbers/5000");
+		  
+		  int[] numbers = new ObjectMapper().readValue(result, int[].class);
+		  
+		  assertEquals(5000, numbers.length);
+		  
+		  assertEquals(4999, numbers[4999]);
+	  }
+	  
+	  @Test
+	  public void testStreamedNDJson()
+	  {
+		  String[] lines = TestUtility.get(choirBase + "choirs/3").split("\n");
+		  
+		  assertEquals(3, lines.length);
+		  
+		  assertEquals("Choir 2", TestUtility.toChoirFromJson(lines[2]).getChoirName());
+	  }
+	  
+	  @Test
+	  public void testStreamClosedOnDisconnect() throws Exception
+	  {
+		  try (Socket socket = new Socket("localhost", 3030)) {
+			  socket.getOutputStream().write("GET /api/annotations/endless HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+			  
+			  assertTrue(readHead(socket.getInputStream()).startsWith("HTTP/1.1 200"));
+			  
+			  // Stop reading while the server is waiting for its write queue to drain
+			  socket.getInputStream().read(new byte[1024]);
+			  
+			  Thread.sleep(200);
+		  }
+		  
+		  String closed = "false";
+		  
+		  for (int i = 0; i < 20 && closed.equals("false"); i++) {
+			  Thread.sleep(100);
+			  
+			  closed = TestUtility.get(choirBase + "endlessClosed");
+		  }
+		  
+		  assertEquals("true", closed);
+	  }
+	  
+	  @Test
+	  public void testStreamedBody()
+	  {
+		  StringBuilder choirs = new StringBuilder("[");
+		  
+		  // A few MB, so the body comes in many chunks
+		  for (int i = 0; i < 50000; i++) {
+			  if (i > 0)
+				  choirs.append(',');
+			  
+			  choirs.append("{\"choirName\":\"Choir ").append(i).append("\",\"address\":{\"city\":\"Omaha\",\"state\":\"NE\"}}");
+		  }
+		  
+		  choirs.append("]");
+		  
+		  assertEquals("Received 50000 choirs", TestUtility.post(choirBase + "ingest", choirs.toString()));
+		  
+		  assertEquals("Received 50000 choirs from bulk", TestUtility.post(choirBase + "ingestNamed", "{\"source\":\"bulk\",\"choirs\":" + choirs + "}"));
+	  }
+	  
+	  @Test
+	  public void testStreamedBodyAborted() throws Exception
+	  {
+		  try (Socket socket = new Socket("localhost", 3030)) {
+			  socket.getOutputStream().write(("POST /api/annotations/ingest HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+					  + "Content-Length: 100000\r\n\r\n[{\"choirName\":").getBytes(StandardCharsets.US_ASCII));
+			  
+			  // Let the parser start waiting for the rest
+			  Thread.sleep(200);
+			  
+			  assertEquals(1, RestVertx.getWorkerPoolMetrics(RestVertx.STREAM_BODY_POOL).getActiveThreads());
+		  }
+		  
+		  // The parser gives its thread back once the client is gone
+		  int active = 1;
+		  
+		  for (int i = 0; i < 20 && active > 0; i++) {
+			  Thread.sleep(100);
+			  
+			  active = RestVertx.getWorkerPoolMetrics(RestVertx.STREAM_BODY_POOL).getActiveThreads();
+		  }
+		  
+		  assertEquals(0, active);
+	  }
+	  
+	  @Test
+	  public void testStreamedBodyMalformed()
+	  {
+		  Response response = TestUtility.postGetResponse(choirBase + "ingest", "[{\"choirName\":");
+		  
+		  try {
+			  assertEquals(400, response.returnResponse().getStatusLine().getStatusCode());
+		  } catch (IOException e) {
+			  throw new RuntimeException(e);
+		  }
+	  }
+	  
+	  @Test
+	  public void testCachedResponse()
+	  {
+		  String first = TestUtility.get(choirBase + "cached/one");
+		  
+		  // Served from the cache, the handling method isn't called again
+		  assertEquals(first, TestUtility.get(choirBase + "cached/one"));
+		  
+		  // Other arguments, other entry
+		  assertNotEquals(first, TestUtility.get(choirBase + "cached/two"));
+	  }
+	  
+	  @Test
+	  public void testStaleWhileRevalidate()
+	  {
+		  String first = TestUtility.toChoirFromJson(TestUtility.get(choirBase + "revalidated/one")).getChoirName();
+		  
+		  // The stale response is served while it's refreshed
+		  assertEquals(first, TestUtility.toChoirFromJson(TestUtility.get(choirBase + "revalidated/one")).getChoirName());
+		  
+		  assertNotEquals(first, TestUtility.toChoirFromJson(TestUtility.get(choirBase + "revalidated/one")).getChoirName());
+	  }
+	  
+	  @Test
+	  public void testFutureResponse()
+	  {
+		  assertEquals("one came later", TestUtility.get(choirBase + "later/one"));
+	  }
+	  
+	  @Test
+	  public void testCompletionStageResponse() throws IOException
+	  {
+		  assertEquals("Choir of 3", TestUtility.toChoirFromJson(TestUtility.get(choirBase + "stage/3")).getChoirName());
+		  
+		  // Failed with a bad argument
+		  assertEquals(400, TestUtility.getGetResponse(choirBase + "stage/-1").returnResponse().getStatusLine().getStatusCode());
+	  }
+	  
+	  @Test
+	  public void testDedicatedWorkerPool()
+	  {
+		  assertTrue(TestUtility.get(choirBase + "report/one").startsWith("one ran on restvertx-reports-"));
+		  
+		  WorkerPoolMetrics metrics = RestVertx.getWorkerPoolMetrics("reports");
+		  
+		  assertEquals(2, metrics.getSize());
+		  
+		  assertTrue(metrics.getCompleted() >= 1);
+	  }
+	  
+	  @Test
+	  public void testOverrunWhileRunning() throws Exception
+	  {
+		  ExecutorService clients = Executors.newFixedThreadPool(1);
+		  
+		  Future<String> stuck = clients.submit(() -> TestUtility.get(choirBase + "stuck/one"));
+		  
+		  // Reported while the call still runs, not once it's done (null until the server registered the route)
+		  WorkerPoolMetrics metrics = null;
+		  
+		  for (int i = 0; i < 100 && (metrics == null || metrics.getOverrunning() == 0); i++) {
+			  Thread.sleep(50);
+			  
+			  metrics = RestVertx.getWorkerPoolMetrics("stuck");
+		  }
+		  
+		  assertEquals(1, metrics.getOverrunning());
+		  assertEquals(1, metrics.getOverruns());
+		  assertFalse(stuck.isDone());
+		  
+		  assertEquals("one", stuck.get());
+		  
+		  metrics = RestVertx.getWorkerPoolMetrics("stuck");
+		  
+		  assertEquals(0, metrics.getOverrunning());
+		  assertEquals(1, metrics.getOverruns());
+		  
+		  clients.shutdown();
+	  }
+	  
+	  @Test
+	  public void testVirtualThreadRoute()
+	  {
+		  String result = TestUtility.get(choirBase + "lookup/one");
+		  
+		  // Falls back to the worker pool before Java 21
+		  Assume.assumeTrue(RestVertx.hasVirtualThreads());
+		  
+		  assertEquals("one looked up on a virtual thread", result);
+	  }
+	  
+	  @Test
+	  public void testBlockingBadRequest() throws IOException
+	  {
+		  // Bound on the worker, still a bad request
+		  Response response = TestUtility.postGetResponse(choirBase + "nameOfChoirBlocking", "{\"choirName\": ");
+		  
+		  assertEquals(400, response.returnResponse().getStatusLine().getStatusCode());
+	  }
+	  
+	  @Test
+	  public void testKeyedSerialExecution() throws Exception
+	  {
+		  ExecutorService clients = Executors.newFixedThreadPool(8);
+		  
+		  List<Future<String>> results = new ArrayList<Future<String>>();
+		  
+		  for (int i = 0; i < 24; i++) {
+			  String account = "account" + (i % 3);
+			  int amount = i;
+			  
+			  results.add(clients.submit(() -> TestUtility.get(choirBase + "deposit/" + account + "/" + amount)));
+		  }
+		  
+		  for (int i = 0; i < 24; i++) {
+			  assertEquals("account" + (i % 3) + " deposited " + i, results.get(i).get());
+		  }
+		  
+		  clients.shutdown();
+		  
+		  // Calls for the same account never ran at the same time
+		  assertEquals("0", TestUtility.get(choirBase + "overlaps"));
+	  }
+	  
+	  @Test
+	  public void testCoalescedRequests() throws Exception
+	  {
+		  ExecutorService clients = Executors.newFixedThreadPool(6);
+		  
+		  List<Future<String>> results = new ArrayList<Future<String>>();
+		  
+		  for (int i = 0; i < 6; i++) {
+			  results.add(clients.submit(() -> TestUtility.get(choirBase + "popular/one")));
+		  }
+		  
+		  // The handling method ran once for all of them
+		  for (Future<String> result : results) {
+			  assertEquals("one call 1", result.get());
+		  }
+		  
+		  clients.shutdown();
+	  }
+	  
+	  @Test
+	  public void testBatchedRequests() throws Exception
+	  {
+		  ExecutorService clients = Executors.newFixedThreadPool(5);
+		  
+		  String[] ids = { "a", "b", "c", "d", "e" };
+		  
+		  List<Future<String>> results = new ArrayList<Future<String>>();
+		  
+		  for (String id : ids) {
+			  results.add(clients.submit(() -> TestUtility.get(choirBase + "batched/" + id)));
+		  }
+		  
+		  // One call to the batch method, each request got its own result back
+		  for (int i = 0; i < ids.length; i++) {
+			  assertEquals(ids[i] + " of 5", results.get(i).get());
+		  }
+		  
+		  clients.shutdown();
+	  }
+	  
+	  @Test
+	  public void testBatchedLater()
+	  {
+		  assertEquals("7 of 1 later", TestUtility.get(choirBase + "batchedLater/7"));
+	  }
+	  
+	  @Test
+	  public void testLimitFallsOnTimeouts() throws Exception
+	  {
+		  // One at a time, each one times out and the limit of 4 backs off
+		  for (int i = 0; i < 8; i++) {
+			  assertEquals(504, TestUtility.getGetResponse(choirBase + "overloaded/" + i).returnResponse().getStatusLine().getStatusCode());
+		  }
+		  
+		  ExecutorService clients = Executors.newFixedThreadPool(1);
+		  
+		  Future<Integer> admitted = clients.submit(() -> TestUtility.getGetResponse(choirBase + "overloaded/first")
+				  .returnResponse().getStatusLine().getStatusCode());
+		  
+		  // Let the first one in
+		  Thread.sleep(100);
+		  
+		  // Down to a single request at a time
+		  assertEquals(503, TestUtility.getGetResponse(choirBase + "overloaded/second").returnResponse().getStatusLine().getStatusCode());
+		  
+		  assertEquals(504, (int) admitted.get());
+		  
+		  clients.shutdown();
+	  }
+	  
+	  @Test
+	  public void testBatchedMalformed() throws IOException
+	  {
+		  assertEquals(500, TestUtility.getGetResponse(choirBase + "batchedShort/7").returnResponse().getStatusLine().getStatusCode());
+	  }
+	  
+	  @Test
+	  public void testConcurrencyLimit() throws Exception
+	  {
+		  ExecutorService clients = Executors.newFixedThreadPool(1);
+		  
+		  Future<String> admitted = clients.submit(() -> TestUtility.get(choirBase + "limited/first"));
+		  
+		  // Let the first one in
+		  Thread.sleep(100);
+		  
+		  HttpResponse rejected = TestUtility.getGetResponse(choirBase + "limited/second").returnResponse();
+		  
+		  assertEquals(429, rejected.getStatusLine().getStatusCode());
+		  assertEquals("2", rejected.getFirstHeader("Retry-After").getValue());
+		  
+		  assertEquals("first", admitted.get());
+		  
+		  // Room again
+		  assertEquals("third", TestUtility.get(choirBase + "limited/third"));
+		  
+		  clients.shutdown();
+	  }
+	  
+	  @Test
+	  public void testTimeout() throws Exception
+	  {
+		  HttpResponse response = TestUtility.getGetResponse(choirBase + "slow/one").returnResponse();
+		  
+		  assertEquals(504, response.getStatusLine().getStatusCode());
+		  
+		  // The handling method saw its deadline cancelled and stopped
+		  Thread.sleep(200);
+		  
+		  assertEquals("true", TestUtility.get(choirBase + "slowCancelled"));
+	  }
+	  
+	  @Test
+	  public void testMaxBodySize() throws IOException
+	  {
+		  assertEquals("Small", TestUtility.post(choirBase + "small", "{\"choirName\":\"Small\"}"));
+		  
+		  String large = "{\"choirName\":\"" + new String(new char[300]).replace('\0', 'x') + "\"}";
+		  
+		  assertEquals(413, TestUtility.postGetResponse(choirBase + "small", large).returnResponse().getStatusLine().getStatusCode());
+		  
+		  // Streamed, cut off once it goes over
+		  assertEquals(413, TestUtility.postGetResponse(choirBase + "smallIngest", "[" + large + "]").returnResponse().getStatusLine().getStatusCode());
+		  
+		  assertEquals("Received 1 choirs", TestUtility.post(choirBase + "smallIngest", "[{\"choirName\":\"Small\"}]"));
+	  }
+	  
+	  @Test
+	  public void testExpectContinue() throws IOException
+	  {
+		  String body = "{\"choirName\":\"Small\"}";
+		  
+		  // Turned away from the Content-Length, the body is never asked for
+		  try (Socket socket = new Socket("localhost", 3030)) {
+			  sendHeaders(socket, "small", 1000);
+			  
+			  assertTrue(readHead(socket.getInputStream()).startsWith("HTTP/1.1 413"));
+		  }
+		  
+		  try (Socket socket = new Socket("localhost", 3030)) {
+			  sendHeaders(socket, "small", body.length());
+			  
+			  assertTrue(readHead(socket.getInputStream()).startsWith("HTTP/1.1 100"));
+			  
+			  socket.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+			  
+			  assertTrue(readHead(socket.getInputStream()).startsWith("HTTP/1.1 200"));
+		  }
+	  }
+	  
+	  private static void sendHeaders(Socket socket, String path, int length) throws IOException
+	  {
+		  OutputStream out = socket.getOutputStream();
+		  
+		  out.write(("POST /api/annotations/" + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+				  + "Content-Length: " + length + "\r\nExpect: 100-continue\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+		  out.flush();
+	  }
+	  
+	  // The status line and headers of the next response
+	  private static String readHead(InputStream in) throws IOException
+	  {
+		  StringBuilder head = new StringBuilder();
+		  
+		  while (head.length() < 4 || !head.substring(head.length() - 4).equals("\r\n\r\n")) {
+			  int b = in.read();
+			  
+			  if (b == -1)
+				  break;
+			  
+			  head.append((char) b);
+		  }
+		  
+		  return head.toString();
+	  }
+	  
 	  @Override
 	  public void start() throws Exception {
 		  
@@ -86,8 +559,7 @@ public class Annotations extends AbstractVerticle
 		  
 		  router = Router.router(vertx);
 		  
-		  // So we can use getBodyAsJson() and/or getBodyAsString() in our handling methods
-		  router.route().handler(BodyHandler.create());
+		  // No BodyHandler here: RestVertx reads the body for the routes that bind from it
 		  
 		  RegisterRoutes();
 		  
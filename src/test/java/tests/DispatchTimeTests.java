@@ -0,0 +1,88 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Method;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.junit.Test;
+
+import rest.vertx.HandlerInvoker;
+import rest.vertx.models.RestResponse;
+
+/**
+ * Compares the cost of dispatching to a handling method through the bound MethodHandle (what RestVertx uses for
+ * the routes it finds at runtime) against a reflective Method.invoke.  No server is needed, only the dispatch
+ * itself is timed
+ */
+public class DispatchTimeTests
+{
+	  static final int WARMUP = 2000000;
+	  static final int ITERATIONS = 20000000;
+
+	  public static class Counter {
+
+		  private final RestResponse response = new RestResponse("counted");
+
+		  private long total;
+
+		  public RestResponse Count(String name, int howMany)
+		  {
+			  total += howMany + name.length();
+
+			  return response;
+		  }
+	  }
+
+	  @Test
+	  public void testTimeFor_Dispatch_ReflectionVsMethodHandle() throws Throwable
+	  {
+		  Counter counter = new Counter();
+
+		  Method m = Counter.class.getMethod("Count", String.class, int.class);
+
+		  HandlerInvoker invoker = HandlerInvoker.bind(m, counter);
+
+		  Object[] arguments = new Object[] { "Alice", 3 };
+
+		  // Warm up both paths so the JIT has compiled them before we time anything
+		  for (int i = 0; i < WARMUP; i++) {
+			  m.invoke(counter, arguments);
+			  invoker.invoke(arguments);
+		  }
+
+		  StopWatch timer = new StopWatch();
+
+		  timer.start();
+
+		  for (int i = 0; i < ITERATIONS; i++) {
+			  m.invoke(counter, arguments);
+		  }
+
+		  timer.stop();
+
+		  long reflective = timer.getNanoTime();
+
+		  timer.reset();
+
+		  timer.start();
+
+		  for (int i = 0; i < ITERATIONS; i++) {
+			  invoker.invoke(arguments);
+		  }
+
+		  timer.stop();
+
+		  long methodHandle = timer.getNanoTime();
+
+		  say(String.format("Method.invoke  = %.2f ns/call (%d ms total)", (double) reflective / ITERATIONS, reflective / 1000000));
+		  say(String.format("HandlerInvoker = %.2f ns/call (%d ms total)", (double) methodHandle / ITERATIONS, methodHandle / 1000000));
+
+		  assertEquals(((RestResponse) invoker.invoke(arguments)).getBody(), "counted");
+	  }
+
+	  static void say(String args)
+	  {
+		  System.out.println(args);
+	  }
+}
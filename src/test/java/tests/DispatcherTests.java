@@ -0,0 +1,110 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.vertx.core.Vertx;
+import rest.vertx.RestDispatcher;
+import rest.vertx.RestVertxServer;
+import tests.handlers.Catalog;
+import tests.handlers.Instances;
+import tests.models.Choir;
+import utils.TestUtility;
+
+public class DispatcherTests
+{
+	  private static Vertx vertx;
+	  
+	  private static RestVertxServer server;
+	  
+	  final String catalogBase = "http://localhost:3030/api/catalog/";
+	
+	  @BeforeClass
+	  public static void main() throws Exception {
+		  
+		  vertx = Vertx.vertx();
+		  
+		  CompletableFuture<Void> started = new CompletableFuture<Void>();
+		  
+		  // Both handling classes served from one route
+		  server = RestVertxServer.create(vertx)
+				  .routes((v, router) -> router.route().handler(RestDispatcher.create(v).register(new Catalog()).register(new Instances())))
+				  .instances(1)
+				  .listen(TestUtility.PORT);
+		  
+		  server.start(result -> {
+			  if (result.succeeded()) {
+				  started.complete(null);
+			  } else {
+				  started.completeExceptionally(result.cause());
+			  }
+		  });
+		  
+		  started.get(10, TimeUnit.SECONDS);
+	  }
+	  
+	  @AfterClass
+	  public static void stop() {
+		  
+		  server.stop(null);
+		  
+		  vertx.close();
+	  }
+	  
+	  @Test
+	  public void testPathParams()
+	  {
+		  assertEquals("item 42", TestUtility.get(catalogBase + "items/42"));
+		  
+		  assertEquals("item a b", TestUtility.get(catalogBase + "items/a%20b"));
+		  
+		  assertEquals("part 3 of 42", TestUtility.get(catalogBase + "items/42/parts/3"));
+	  }
+	  
+	  @Test
+	  public void testLiteralBeforeParam()
+	  {
+		  assertEquals("featured", TestUtility.get(catalogBase + "items/featured"));
+	  }
+	  
+	  @Test
+	  public void testStaticMethod()
+	  {
+		  assertEquals("catalog 1", TestUtility.get(catalogBase + "version"));
+	  }
+	  
+	  @Test
+	  public void testBody() throws Exception
+	  {
+		  Choir choir = new Choir();
+		  
+		  choir.setChoirName("Tabernacle");
+		  
+		  assertEquals("added Tabernacle", TestUtility.post(catalogBase + "items", choir.toJson(false)));
+		  
+		  choir.setChoirName(new String(new char[2000]).replace('\0', 'x'));
+		  
+		  assertEquals(413, TestUtility.postGetResponse(catalogBase + "items", choir.toJson(false)).returnResponse().getStatusLine().getStatusCode());
+	  }
+	  
+	  @Test
+	  public void testNoRoute() throws Exception
+	  {
+		  assertEquals(404, TestUtility.getGetResponse(catalogBase + "nothing/here").returnResponse().getStatusLine().getStatusCode());
+		  
+		  // Right path, wrong method
+		  assertEquals(404, TestUtility.postGetResponse(catalogBase + "items/featured", "{}").returnResponse().getStatusLine().getStatusCode());
+	  }
+	  
+	  @Test
+	  public void testOtherClass()
+	  {
+		  assertEquals(3, TestUtility.get("http://localhost:3030/api/instances/whoami").split(" ").length);
+	  }
+}
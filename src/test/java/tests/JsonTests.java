@@ -113,6 +113,15 @@ public class JsonTests extends AbstractVerticle
 		  assertNull(testChoir.getAddress().getStreet());
 	  }
 	  
+	  @Test
+	  public void testJsonBodyMalformed() throws IOException
+	  {
+		  // Cut short, and a field that can't map to the Choir
+		  assertEquals(400, TestUtility.postGetResponse(choirBase + "names", "{\"choirName\":\"Omaha\"").returnResponse().getStatusLine().getStatusCode());
+		  
+		  assertEquals(400, TestUtility.postGetResponse(choirBase + "names", "{\"address\":[1, 2]}").returnResponse().getStatusLine().getStatusCode());
+	  }
+	  
 	  @Test
 	  public void testJsonBody_TwoParams()
 	  {
@@ -279,6 +288,55 @@ public class JsonTests extends AbstractVerticle
 		  assertEquals(result, expectedResult);
 	  }
 	  
+	  @Test
+	  public void testJsonBody_MultipleParams_UnknownFieldsSkipped()
+	  {
+		  HashMap<String, Object> toSend = new HashMap<String, Object>();
+		  
+		  HashMap<String, Object> notAParam = new HashMap<String, Object>();
+		  
+		  String nameOne = "Alice";
+		  
+		  String nameTwo = "Anne";
+		  
+		  int howMany = 3;
+		  
+		  Choir testChoir = new Choir();
+		  
+		  testChoir.setChoirName("Omaha Children's Choir");
+		  
+		  notAParam.put("choir", "not this one");
+		  
+		  notAParam.put("members", new int[] { 1, 2, 3 });
+		  
+		  toSend.put("extra", notAParam);
+		  
+		  toSend.put("nameOne", nameOne);
+		  
+		  toSend.put("nameTwo", nameTwo);
+		  
+		  // Numbers sent as strings are still converted
+		  toSend.put("howMany", "" + howMany);		
+		  
+		  toSend.put("choir", testChoir);
+		  
+		  ObjectMapper mapper = new ObjectMapper();		
+		  
+		  String jsonString = null;
+		  
+			try {
+				jsonString = mapper.writeValueAsString(toSend);
+			} catch (JsonProcessingException e1) {
+				e1.printStackTrace();
+			}
+		
+		  String result = TestUtility.post(choirBase + "choirMixedInput", jsonString);
+		  
+		  String expectedResult = "There were " + howMany + " people in the " + testChoir.getChoirName() +".  Their names included " + nameOne + ", and " + nameTwo;
+		  
+		  assertEquals(result, expectedResult);
+	  }
+	  
 	  @Override
 	  public void start() throws Exception {
 		  
@@ -10,6 +10,7 @@ import utils.TestUtility;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 
@@ -129,6 +130,22 @@ public class ParamTypeTests extends AbstractVerticle
 		  assertEquals(result, "10.2");
 	  }
 	  
+	  @Test
+	  public void testIntBadRequest()
+	  {
+		  String url = base + "count/int/one";
+		  
+		  int statusCode = 0;
+		  
+		  try {
+			  statusCode = TestUtility.getGetResponse(url).returnResponse().getStatusLine().getStatusCode();
+		  } catch (IOException e) {
+			  e.printStackTrace();
+		  }
+		  
+		  assertEquals(400, statusCode);
+	  }
+	  
 	  @Override
 	  public void start() throws Exception {
 		  
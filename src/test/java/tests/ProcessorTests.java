@@ -0,0 +1,169 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.Router;
+import rest.vertx.RestVertx;
+import tests.models.Choir;
+import utils.TestUtility;
+
+/**
+ * The other suites register their handling classes at runtime.  This one compiles a couple of them again with the
+ * annotation processor, and serves them through the registrars it generated
+ */
+public class ProcessorTests
+{
+	  private static final String[] HANDLERS = { "Catalog", "AnnotationHandler" };
+
+	  private static Vertx vertx;
+
+	  private static ClassLoader generated;
+
+	  final String catalogBase = "http://localhost:3030/api/catalog/";
+
+	  final String choirBase = "http://localhost:3030/api/annotations/";
+
+	  @BeforeClass
+	  public static void main() throws Exception {
+
+		  File out = Files.createTempDirectory("registrars").toFile();
+
+		  JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+		  try (StandardJavaFileManager files = compiler.getStandardFileManager(null, null, null)) {
+			  File[] sources = new File[HANDLERS.length];
+
+			  for (int i = 0; i < HANDLERS.length; i++) {
+				  sources[i] = new File("src/test/java/tests/handlers/" + HANDLERS[i] + ".java");
+			  }
+
+			  boolean compiled = compiler.getTask(null, files, null,
+					  Arrays.asList("-d", out.getPath(), "-classpath", "target/classes" + File.pathSeparator + "target/test-classes"
+							  + File.pathSeparator + System.getProperty("java.class.path"), "-processor", "rest.vertx.processor.RouteProcessor"),
+					  null, files.getJavaFileObjects(sources)).call();
+
+			  assertTrue("The handlers didn't compile with the processor", compiled);
+		  }
+
+		  generated = new HandlersFirst(out);
+
+		  vertx = Vertx.vertx();
+
+		  Router router = Router.router(vertx);
+
+		  RestVertx.register(vertx, router, generated.loadClass("tests.handlers.Catalog").getDeclaredConstructor().newInstance());
+
+		  // Registers itself
+		  generated.loadClass("tests.handlers.AnnotationHandler").getDeclaredConstructor(Vertx.class, Router.class).newInstance(vertx, router);
+
+		  CompletableFuture<Void> started = new CompletableFuture<Void>();
+
+		  vertx.createHttpServer().requestHandler(router::accept).listen(TestUtility.PORT, result -> {
+			  if (result.succeeded()) {
+				  started.complete(null);
+			  } else {
+				  started.completeExceptionally(result.cause());
+			  }
+		  });
+
+		  started.get(10, TimeUnit.SECONDS);
+	  }
+
+	  @AfterClass
+	  public static void stop() {
+
+		  vertx.close();
+	  }
+
+	  @Test
+	  public void testRegistrarsGenerated() throws ClassNotFoundException
+	  {
+		  for (String handler : HANDLERS) {
+			  Class<?> registrar = generated.loadClass("tests.handlers." + handler + "_RestVertxRegistrar");
+
+			  assertEquals(generated, registrar.getClassLoader());
+		  }
+	  }
+
+	  @Test
+	  public void testPathParams()
+	  {
+		  assertEquals("item 42", TestUtility.get(catalogBase + "items/42"));
+
+		  assertEquals("part 3 of 42", TestUtility.get(catalogBase + "items/42/parts/3"));
+	  }
+
+	  @Test
+	  public void testStaticMethod()
+	  {
+		  // Registered like the runtime scan does
+		  assertEquals("catalog 1", TestUtility.get(catalogBase + "version"));
+	  }
+
+	  @Test
+	  public void testBody() throws IOException
+	  {
+		  Choir choir = new Choir();
+
+		  choir.setChoirName("Tabernacle");
+
+		  assertEquals("added Tabernacle", TestUtility.post(catalogBase + "items", choir.toJson(false)));
+
+		  assertEquals(400, TestUtility.postGetResponse(catalogBase + "items", "{\"choirName\":").returnResponse().getStatusLine().getStatusCode());
+	  }
+
+	  @Test
+	  public void testAnnotationValues()
+	  {
+		  // A keyed blocking route and a batch method, both read from the annotations at build time
+		  assertEquals("one deposited 5", TestUtility.get(choirBase + "deposit/one/5"));
+
+		  assertEquals("7 of 1", TestUtility.get(choirBase + "batched/7"));
+	  }
+
+	  /**
+	   * Loads the classes compiled with the processor before the ones of the test build, so RestVertx finds the
+	   * registrars next to the handling classes
+	   */
+	  private static final class HandlersFirst extends URLClassLoader
+	  {
+		  HandlersFirst(File dir) throws IOException {
+			  super(new URL[] { dir.toURI().toURL() }, ProcessorTests.class.getClassLoader());
+		  }
+
+		  @Override
+		  protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			  Class<?> toret = findLoadedClass(name);
+
+			  if (toret == null && findResource(name.replace('.', '/') + ".class") != null)
+				  toret = findClass(name);
+
+			  if (toret == null)
+				  return super.loadClass(name, resolve);
+
+			  if (resolve)
+				  resolveClass(toret);
+
+			  return toret;
+		  }
+	  }
+}
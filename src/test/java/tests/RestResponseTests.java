@@ -1,10 +1,12 @@
 package tests;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.fluent.Response;
+import org.apache.http.util.EntityUtils;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -69,6 +71,19 @@ public class RestResponseTests extends AbstractVerticle
 		assertTrue(response.getHeaders("content-type")[0].getValue().equals("application/json; charset=utf-8"));  
 	  }
 	  
+	  @Test
+	  public void testBinaryBody() throws IOException
+	  {
+		  HttpResponse response = TestUtility.getGetResponse(choirBase + "logo").returnResponse();
+		  
+		  assertArrayEquals(new byte[] { (byte) 0x89, 'P', 'N', 'G', 0, 1, 2, (byte) 0xFF }, EntityUtils.toByteArray(response.getEntity()));
+		  
+		  assertTrue(response.getFirstHeader("content-type").getValue().equals("image/png"));
+		  
+		  // Multi-valued headers are all sent
+		  assertTrue(response.getHeaders("set-cookie").length == 2);
+	  }
+	  
 	  @Override
 	  public void start() throws Exception {
 		  
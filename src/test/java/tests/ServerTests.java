@@ -0,0 +1,171 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.fluent.Request;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.vertx.core.Vertx;
+import rest.vertx.RestVertxServer;
+import tests.handlers.Instances;
+import utils.TestUtility;
+
+public class ServerTests
+{
+	  private static Vertx vertx;
+	  
+	  private static RestVertxServer server;
+	  
+	  final String instancesBase = "http://localhost:3030/api/instances/";
+	
+	  @BeforeClass
+	  public static void main() throws Exception {
+		  
+		  vertx = Vertx.vertx();
+		  
+		  CompletableFuture<Void> started = new CompletableFuture<Void>();
+		  
+		  server = RestVertxServer.create(vertx)
+				  .handler(Instances::new)
+				  .instances(4)
+				  .idleTimeout(1)
+				  .listen(TestUtility.PORT);
+		  
+		  server.start(result -> {
+			  if (result.succeeded()) {
+				  started.complete(null);
+			  } else {
+				  started.completeExceptionally(result.cause());
+			  }
+		  });
+		  
+		  started.get(10, TimeUnit.SECONDS);
+	  }
+	  
+	  @AfterClass
+	  public static void stop() {
+		  
+		  server.stop(null);
+		  
+		  vertx.close();
+	  }
+	  
+	  @Test
+	  public void testIdleConnectionsClosed() throws Exception
+	  {
+		  try (Socket socket = new Socket("localhost", TestUtility.PORT)) {
+			  socket.setSoTimeout(5000);
+			  
+			  // Nothing sent, the server gives up on us after its idle timeout
+			  assertEquals(-1, socket.getInputStream().read());
+		  }
+	  }
+	  
+	  @Test
+	  public void testInstancesShareThePort() throws Exception
+	  {
+		  Set<String> instances = new HashSet<String>();
+		  
+		  // A new connection each time, Vertx hands them to the instances in turn
+		  for (int i = 0; i < 8; i++) {
+			  String whoami = Request.Get(instancesBase + "whoami").addHeader("Connection", "close")
+					  .execute().returnContent().asString();
+			  
+			  // Which handler instance on which event loop, without its count
+			  instances.add(whoami.substring(0, whoami.lastIndexOf(" ")));
+		  }
+		  
+		  assertTrue("Served by " + instances, instances.size() > 1);
+	  }
+	  
+	  @Test
+	  public void testKeyedAcrossInstances() throws Exception
+	  {
+		  ExecutorService clients = Executors.newFixedThreadPool(8);
+		  
+		  List<Future<String>> deposits = new ArrayList<Future<String>>();
+		  
+		  // New connections, so the calls for the same account come in on different instances
+		  for (int i = 0; i < 16; i++) {
+			  deposits.add(clients.submit(() -> Request.Get(instancesBase + "deposit/one").addHeader("Connection", "close")
+					  .execute().returnContent().asString()));
+		  }
+		  
+		  for (Future<String> deposit : deposits) {
+			  assertEquals("one deposited", deposit.get());
+		  }
+		  
+		  assertEquals("0", TestUtility.get(instancesBase + "overlaps"));
+		  
+		  clients.shutdown();
+	  }
+	  
+	  @Test
+	  public void testLimitAcrossInstances() throws Exception
+	  {
+		  ExecutorService clients = Executors.newFixedThreadPool(4);
+		  
+		  List<Future<Integer>> calls = new ArrayList<Future<Integer>>();
+		  
+		  // New connections, so the calls come in on different instances, and only one fits under the limit
+		  for (int i = 0; i < 4; i++) {
+			  calls.add(clients.submit(() -> Request.Get(instancesBase + "limited").addHeader("Connection", "close")
+					  .execute().returnResponse().getStatusLine().getStatusCode()));
+		  }
+		  
+		  int admitted = 0;
+		  
+		  for (Future<Integer> call : calls) {
+			  if (call.get() == 200)
+				  admitted++;
+		  }
+		  
+		  assertEquals(1, admitted);
+		  
+		  clients.shutdown();
+	  }
+	  
+	  @Test
+	  public void testCacheAcrossInstances() throws Exception
+	  {
+		  // New connections, so the instances on the other event loops find what the first one cached
+		  for (int i = 0; i < 8; i++) {
+			  assertEquals("computed 1", Request.Get(instancesBase + "cached").addHeader("Connection", "close")
+					  .execute().returnContent().asString());
+		  }
+	  }
+	  
+	  @Test
+	  public void testCoalesceAcrossInstances() throws Exception
+	  {
+		  ExecutorService clients = Executors.newFixedThreadPool(8);
+		  
+		  List<Future<String>> calls = new ArrayList<Future<String>>();
+		  
+		  // New connections, so the herd comes in on every instance at once
+		  for (int i = 0; i < 8; i++) {
+			  calls.add(clients.submit(() -> Request.Get(instancesBase + "popular").addHeader("Connection", "close")
+					  .execute().returnContent().asString()));
+		  }
+		  
+		  for (Future<String> call : calls) {
+			  assertEquals("call 1", call.get());
+		  }
+		  
+		  clients.shutdown();
+	  }
+}
@@ -0,0 +1,180 @@
+package tests;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.net.JksOptions;
+import rest.vertx.RestVertxServer;
+import tests.handlers.Instances;
+import utils.TestUtility;
+
+/**
+ * Measures TLS handshakes per second against a RestVertxServer with a self-signed certificate, with every client
+ * starting a full handshake versus clients resuming their session.  Needs keytool (from the JDK) to make the certificate
+ */
+public class TlsTimeTests
+{
+	  static final int WARMUP = 100;
+	  static final int HANDSHAKES = 500;
+	  
+	  static final String PASSWORD = "restvertx";
+	  
+	  private static Vertx vertx;
+	  
+	  private static RestVertxServer server;
+	
+	  @BeforeClass
+	  public static void main() throws Exception {
+		  
+		  File keyStore = new File("target/tls-bench.jks");
+		  
+		  if (!keyStore.exists()) {
+			  Process keytool = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/keytool").getPath(),
+					  "-genkeypair", "-alias", "server", "-keyalg", "EC", "-groupname", "secp256r1", "-dname", "CN=localhost",
+					  "-validity", "2", "-storetype", "JKS", "-keystore", keyStore.getPath(),
+					  "-storepass", PASSWORD, "-keypass", PASSWORD).inheritIO().start();
+			  
+			  assertTrue("keytool failed", keytool.waitFor() == 0);
+		  }
+		  
+		  vertx = Vertx.vertx();
+		  
+		  CompletableFuture<Void> started = new CompletableFuture<Void>();
+		  
+		  server = RestVertxServer.create(vertx)
+				  .ssl(new JksOptions().setPath(keyStore.getPath()).setPassword(PASSWORD))
+				  .handler(Instances::new)
+				  .listen(TestUtility.PORT);
+		  
+		  server.start(result -> {
+			  if (result.succeeded()) {
+				  started.complete(null);
+			  } else {
+				  started.completeExceptionally(result.cause());
+			  }
+		  });
+		  
+		  started.get(10, TimeUnit.SECONDS);
+	  }
+	  
+	  @AfterClass
+	  public static void stop() {
+		  
+		  server.stop(null);
+		  
+		  vertx.close();
+	  }
+	  
+	  @Test
+	  public void testTimeFor_Handshakes_FullVsResumed() throws Exception
+	  {
+		  // Warm up both paths
+		  handshakes(WARMUP, false);
+		  handshakes(WARMUP, true);
+		  
+		  StopWatch timer = new StopWatch();
+		  
+		  timer.start();
+		  
+		  handshakes(HANDSHAKES, false);
+		  
+		  timer.stop();
+		  
+		  long full = timer.getNanoTime();
+		  
+		  timer.reset();
+		  
+		  timer.start();
+		  
+		  int resumed = handshakes(HANDSHAKES, true);
+		  
+		  timer.stop();
+		  
+		  long resumption = timer.getNanoTime();
+		  
+		  say(String.format("Full handshakes    = %.0f/s (%d ms total)", HANDSHAKES * 1e9 / full, full / 1000000));
+		  say(String.format("Resumed handshakes = %.0f/s (%d ms total, %d of %d resumed)", HANDSHAKES * 1e9 / resumption,
+				  resumption / 1000000, resumed, HANDSHAKES));
+		  
+		  assertTrue("No session was resumed", resumed > 0);
+	  }
+	  
+	  /**
+	   * Connects and handshakes over TLS 1.2 (where a resumed session keeps its id), then hangs up
+	   * 
+	   * @param count
+	   * @param resume - Offer the session of the last connection again.  Otherwise it's invalidated, so every
+	   * connection goes through a full handshake
+	   * @return The number of resumed sessions
+	   */
+	  private static int handshakes(int count, boolean resume) throws Exception
+	  {
+		  SSLContext context = trustAll();
+		  
+		  byte[] previous = null;
+		  
+		  int resumed = 0;
+		  
+		  for (int i = 0; i < count; i++) {
+			  try (SSLSocket socket = (SSLSocket) context.getSocketFactory().createSocket("localhost", TestUtility.PORT)) {
+				  socket.setEnabledProtocols(new String[] { "TLSv1.2" });
+				  
+				  socket.startHandshake();
+				  
+				  byte[] id = socket.getSession().getId();
+				  
+				  if (previous != null && Arrays.equals(previous, id))
+					  resumed++;
+				  
+				  previous = id;
+				  
+				  if (!resume)
+					  socket.getSession().invalidate();
+			  }
+		  }
+		  
+		  return resumed;
+	  }
+	  
+	  private static SSLContext trustAll() throws Exception
+	  {
+		  // Self-signed, trust it as is
+		  TrustManager trustAll = new X509TrustManager() {
+			  
+			  public void checkClientTrusted(X509Certificate[] chain, String authType) {}
+			  
+			  public void checkServerTrusted(X509Certificate[] chain, String authType) {}
+			  
+			  public X509Certificate[] getAcceptedIssuers() {
+				  return new X509Certificate[0];
+			  }
+		  };
+		  
+		  SSLContext toret = SSLContext.getInstance("TLS");
+		  
+		  toret.init(null, new TrustManager[] { trustAll }, null);
+		  
+		  return toret;
+	  }
+	  
+	  static void say(String args)
+	  {
+		  System.out.println(args);
+	  }
+}
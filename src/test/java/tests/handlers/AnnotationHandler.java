@@ -2,26 +2,49 @@ package tests.handlers;
 
 import rest.vertx.RestVertx;
 import rest.vertx.Annotations.Base;
+import rest.vertx.Annotations.Batch;
 import rest.vertx.Annotations.Blocking;
+import rest.vertx.Annotations.Cache;
+import rest.vertx.Annotations.Coalesce;
+import rest.vertx.Annotations.Limit;
+import rest.vertx.Annotations.MaxBodySize;
 import rest.vertx.Annotations.Method;
 import rest.vertx.Annotations.Path;
 import rest.vertx.Annotations.ResultType;
+import rest.vertx.Annotations.StreamBody;
+import rest.vertx.Annotations.Timeout;
+import rest.vertx.models.Deadline;
 import rest.vertx.models.RestResponse;
 import tests.models.Choir;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.ext.web.Router;
 
 @Base("api/annotations")
 public class AnnotationHandler {
 	
+	private final Vertx vertx;
+	
 	public AnnotationHandler(Vertx _vertx, Router router)
 	{
+		vertx = _vertx;
+		
 		RestVertx.register(_vertx, router, this);
 	}
 	
@@ -67,6 +90,351 @@ public class AnnotationHandler {
 		return new RestResponse(choir.toJson(false));
 	}
 	
+	@Method("Post")
+	@Path("choirEntity")
+	public Choir PostChoirEntity(Choir choir)
+	{
+		// Sent back as Json without building the String ourselves
+		return choir;
+	}
+	
+	@Method("Post")
+	@Path("choirEntityCreated")
+	public RestResponse PostChoirEntityCreated(Choir choir)
+	{
+		return new RestResponse((Object) choir, 201);
+	}
+	
+	// Pre-encoded payload served from memory
+	private static final byte[] LOGO = new byte[] { (byte) 0x89, 'P', 'N', 'G', 0, 1, 2, (byte) 0xFF };
+	
+	@Method("Get")
+	@Path("logo")
+	public RestResponse GetLogo()
+	{
+		return RestResponse.binary(LOGO, 200)
+				.addHeader("content-type", "image/png")
+				.addHeader("set-cookie", "one=1")
+				.addHeader("set-cookie", "two=2");
+	}
+	
+	@Method("Get")
+	@Path("numbers/:count")
+	public Iterator<Integer> GetNumbers(int count)
+	{
+		// Sent as a Json array, one element at a time
+		return IntStream.range(0, count).iterator();
+	}
+	
+	@Method("Get")
+	@Path("choirs/:count")
+	@ResultType("NDJson")
+	public Stream<Choir> GetChoirs(int count)
+	{
+		return IntStream.range(0, count).mapToObj(i -> {
+			Choir choir = new Choir();
+			
+			choir.setChoirName("Choir " + i);
+			
+			return choir;
+		});
+	}
+	
+	private final AtomicBoolean endlessClosed = new AtomicBoolean();
+	
+	@Method("Get")
+	@Path("endless")
+	public Stream<Integer> GetEndless()
+	{
+		// Like a database cursor, only released if the Stream is closed
+		return Stream.iterate(0, i -> i + 1).onClose(() -> endlessClosed.set(true));
+	}
+	
+	@Method("Get")
+	@Path("endlessClosed")
+	public RestResponse GetEndlessClosed()
+	{
+		return new RestResponse(String.valueOf(endlessClosed.get()));
+	}
+	
+	@StreamBody
+	@Method("Post")
+	@Path("ingest")
+	public RestResponse Ingest(Choir[] choirs)
+	{
+		return new RestResponse("Received " + choirs.length + " choirs");
+	}
+	
+	@StreamBody
+	@Blocking("true")
+	@Method("Post")
+	@Path("ingestNamed")
+	public RestResponse IngestNamed(String source, Choir[] choirs)
+	{
+		return new RestResponse("Received " + choirs.length + " choirs from " + source);
+	}
+	
+	@MaxBodySize("256")
+	@Method("Post")
+	@Path("small")
+	public RestResponse PostSmall(Choir choir)
+	{
+		return new RestResponse(choir.getChoirName());
+	}
+	
+	@MaxBodySize("256")
+	@StreamBody
+	@Method("Post")
+	@Path("smallIngest")
+	public RestResponse SmallIngest(Choir[] choirs)
+	{
+		return new RestResponse("Received " + choirs.length + " choirs");
+	}
+	
+	private final AtomicInteger calls = new AtomicInteger();
+	
+	@Cache("60")
+	@Method("Get")
+	@Path("cached/:id")
+	public RestResponse GetCached(String id)
+	{
+		return new RestResponse(id + " " + calls.incrementAndGet());
+	}
+	
+	// Always stale, so every hit refreshes it in the background
+	@Cache(value = "0", staleWhileRevalidate = "60")
+	@Method("Get")
+	@Path("revalidated/:id")
+	public Choir GetRevalidated(String id)
+	{
+		Choir choir = new Choir();
+		
+		choir.setChoirName(id + " " + calls.incrementAndGet());
+		
+		return choir;
+	}
+	
+	@Method("Get")
+	@Path("later/:id")
+	public Future<RestResponse> GetLater(String id)
+	{
+		Future<RestResponse> toret = Future.future();
+		
+		// Stands in for a call to another service, the event loop isn't blocked meanwhile
+		vertx.setTimer(50, t -> toret.complete(new RestResponse(id + " came later")));
+		
+		return toret;
+	}
+	
+	@Method("Get")
+	@Path("stage/:count")
+	public CompletionStage<Choir> GetStage(int count)
+	{
+		if (count < 0) {
+			CompletableFuture<Choir> failed = new CompletableFuture<Choir>();
+			
+			failed.completeExceptionally(new IllegalArgumentException("count must be positive"));
+			
+			return failed;
+		}
+		
+		return CompletableFuture.supplyAsync(() -> {
+			Choir choir = new Choir();
+			
+			choir.setChoirName("Choir of " + count);
+			
+			return choir;
+		});
+	}
+	
+	@Blocking(value = "true", serial = "false", pool = "reports", poolSize = "2")
+	@Method("Get")
+	@Path("report/:id")
+	public RestResponse GetReport(String id)
+	{
+		return new RestResponse(id + " ran on " + Thread.currentThread().getName());
+	}
+	
+	@Blocking(value = "true", serial = "false", pool = "stuck", poolSize = "1", maxExecuteTime = "100")
+	@Method("Get")
+	@Path("stuck/:id")
+	public RestResponse GetStuck(String id) throws InterruptedException
+	{
+		// Well over the max execute time of its pool
+		Thread.sleep(1000);
+		
+		return new RestResponse(id);
+	}
+	
+	// On a virtual thread with Java 21 or later, on the worker pool before that
+	@Blocking(value = "true", serial = "false", virtual = "true")
+	@Method("Get")
+	@Path("lookup/:id")
+	public RestResponse GetLookup(String id)
+	{
+		boolean virtual;
+		
+		// We build for Java 8, Thread.isVirtual() is only there from Java 21
+		try {
+			virtual = (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread());
+		} catch (ReflectiveOperationException e) {
+			virtual = false;
+		}
+		
+		return new RestResponse(id + " looked up on a " + (virtual ? "virtual" : "platform") + " thread");
+	}
+	
+	private final ConcurrentHashMap<String, AtomicInteger> running = new ConcurrentHashMap<String, AtomicInteger>();
+	
+	private final AtomicInteger overlaps = new AtomicInteger();
+	
+	// Deposits to one account are kept in order, different accounts go in parallel
+	@Blocking(value = "true", key = "account")
+	@Method("Get")
+	@Path("deposit/:account/:amount")
+	public RestResponse GetDeposit(String account, int amount) throws InterruptedException
+	{
+		AtomicInteger current = running.computeIfAbsent(account, a -> new AtomicInteger());
+		
+		if (current.incrementAndGet() > 1) {
+			overlaps.incrementAndGet();
+		}
+		
+		Thread.sleep(10);
+		
+		current.decrementAndGet();
+		
+		return new RestResponse(account + " deposited " + amount);
+	}
+	
+	@Method("Get")
+	@Path("overlaps")
+	public RestResponse GetOverlaps()
+	{
+		return new RestResponse(String.valueOf(overlaps.get()));
+	}
+	
+	private final AtomicInteger popularCalls = new AtomicInteger();
+	
+	@Coalesce
+	@Blocking(value = "true", serial = "false")
+	@Method("Get")
+	@Path("popular/:id")
+	public RestResponse GetPopular(String id) throws InterruptedException
+	{
+		// Expensive, everyone asking meanwhile gets this call's response
+		Thread.sleep(500);
+		
+		return new RestResponse(id + " call " + popularCalls.incrementAndGet());
+	}
+	
+	@Batch(value = "GetBatchedChoirs", maxSize = "5", maxDelay = "2000")
+	@Method("Get")
+	@Path("batched/:id")
+	public RestResponse GetBatched(String id)
+	{
+		// Never called, the requests go to GetBatchedChoirs together
+		return new RestResponse(id);
+	}
+	
+	public List<RestResponse> GetBatchedChoirs(List<String> ids)
+	{
+		// One bulk lookup instead of one per id
+		List<RestResponse> toret = new ArrayList<RestResponse>();
+		
+		for (String id : ids) {
+			toret.add(new RestResponse(id + " of " + ids.size()));
+		}
+		
+		return toret;
+	}
+	
+	@Batch(value = "GetBatchedChoirsLater", maxSize = "5", maxDelay = "50")
+	@Timeout("2000")
+	@Method("Get")
+	@Path("batchedLater/:id")
+	public RestResponse GetBatchedLater(String id, Deadline deadline)
+	{
+		// Never called, the requests go to GetBatchedChoirsLater together
+		return new RestResponse(id);
+	}
+	
+	public CompletionStage<List<RestResponse>> GetBatchedChoirsLater(List<String> ids)
+	{
+		// The ids only, the deadline of each request isn't part of its arguments
+		return CompletableFuture.supplyAsync(() -> {
+			List<RestResponse> toret = new ArrayList<RestResponse>();
+			
+			for (String id : ids) {
+				toret.add(new RestResponse(id + " of " + ids.size() + " later"));
+			}
+			
+			return toret;
+		});
+	}
+	
+	@Batch(value = "GetBatchedChoirsShort", maxDelay = "50")
+	@Method("Get")
+	@Path("batchedShort/:id")
+	public RestResponse GetBatchedShort(String id)
+	{
+		// Never called, the requests go to GetBatchedChoirsShort together
+		return new RestResponse(id);
+	}
+	
+	public List<RestResponse> GetBatchedChoirsShort(List<String> ids)
+	{
+		// Not a result for each id
+		return new ArrayList<RestResponse>();
+	}
+	
+	@Limit(value = "1", adaptive = "false", status = "429", retryAfter = "2")
+	@Blocking(value = "true", serial = "false")
+	@Method("Get")
+	@Path("limited/:id")
+	public RestResponse GetLimited(String id) throws InterruptedException
+	{
+		// Slow, only one of these at a time
+		Thread.sleep(500);
+		
+		return new RestResponse(id);
+	}
+	
+	@Limit(value = "4", min = "1")
+	@Timeout("200")
+	@Method("Get")
+	@Path("overloaded/:id")
+	public CompletionStage<RestResponse> GetOverloaded(String id)
+	{
+		// Never answers, every request times out
+		return new CompletableFuture<RestResponse>();
+	}
+	
+	private volatile boolean slowCancelled;
+	
+	@Timeout("200")
+	@Blocking(value = "true", serial = "false")
+	@Method("Get")
+	@Path("slow/:id")
+	public RestResponse GetSlow(String id, Deadline deadline) throws InterruptedException
+	{
+		// Way past the timeout, unless we're told to give up
+		for (int i = 0; i < 100 && !deadline.isCancelled(); i++) {
+			Thread.sleep(20);
+		}
+		
+		slowCancelled = deadline.isCancelled();
+		
+		return new RestResponse(id);
+	}
+	
+	@Method("Get")
+	@Path("slowCancelled")
+	public RestResponse GetSlowCancelled()
+	{
+		return new RestResponse(String.valueOf(slowCancelled));
+	}
+	
 	@Method("Post")
 	@Path("nameOfChoirHeaders")
 	public RestResponse PutWithCustomHeaders(Choir choir)
@@ -0,0 +1,48 @@
+package tests.handlers;
+
+import rest.vertx.Annotations.Base;
+import rest.vertx.Annotations.MaxBodySize;
+import rest.vertx.Annotations.Method;
+import rest.vertx.Annotations.Path;
+import rest.vertx.models.RestResponse;
+import tests.models.Choir;
+
+@Base("api/catalog")
+public class Catalog {
+	
+	@Method("Get")
+	@Path("items/:id")
+	public RestResponse GetItem(String id)
+	{
+		return new RestResponse("item " + id);
+	}
+	
+	@Method("Get")
+	@Path("items/featured")
+	public RestResponse GetFeatured()
+	{
+		return new RestResponse("featured");
+	}
+	
+	@Method("Get")
+	@Path("items/:id/parts/:part")
+	public RestResponse GetPart(String id, int part)
+	{
+		return new RestResponse("part " + part + " of " + id);
+	}
+	
+	@Method("Get")
+	@Path("version")
+	public static RestResponse GetVersion()
+	{
+		return new RestResponse("catalog 1");
+	}
+	
+	@MaxBodySize("1024")
+	@Method("Post")
+	@Path("items")
+	public RestResponse PostItem(Choir choir)
+	{
+		return new RestResponse("added " + choir.getChoirName());
+	}
+}
@@ -0,0 +1,95 @@
+package tests.handlers;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rest.vertx.Annotations.Base;
+import rest.vertx.Annotations.Blocking;
+import rest.vertx.Annotations.Cache;
+import rest.vertx.Annotations.Coalesce;
+import rest.vertx.Annotations.Limit;
+import rest.vertx.Annotations.Method;
+import rest.vertx.Annotations.Path;
+import rest.vertx.models.RestResponse;
+
+@Base("api/instances")
+public class Instances {
+	
+	// Only ever touched by the event loop of its server instance, no need to synchronize
+	private int served;
+	
+	// Shared by the instances on every event loop, to catch calls for the same account running at the same time
+	private static final ConcurrentHashMap<String, AtomicInteger> running = new ConcurrentHashMap<String, AtomicInteger>();
+	
+	private static final AtomicInteger overlaps = new AtomicInteger();
+	
+	private static final AtomicInteger computed = new AtomicInteger();
+	
+	private static final AtomicInteger popularCalls = new AtomicInteger();
+	
+	@Method("Get")
+	@Path("whoami")
+	public RestResponse Get()
+	{
+		served++;
+		
+		return new RestResponse(System.identityHashCode(this) + " " + Thread.currentThread().getName() + " " + served);
+	}
+	
+	@Blocking(value = "true", key = "account")
+	@Method("Get")
+	@Path("deposit/:account")
+	public RestResponse GetDeposit(String account) throws InterruptedException
+	{
+		AtomicInteger current = running.computeIfAbsent(account, a -> new AtomicInteger());
+		
+		if (current.incrementAndGet() > 1) {
+			overlaps.incrementAndGet();
+		}
+		
+		Thread.sleep(20);
+		
+		current.decrementAndGet();
+		
+		return new RestResponse(account + " deposited");
+	}
+	
+	@Method("Get")
+	@Path("overlaps")
+	public RestResponse GetOverlaps()
+	{
+		return new RestResponse(String.valueOf(overlaps.get()));
+	}
+	
+	@Limit(value = "1", adaptive = "false", status = "429")
+	@Blocking(value = "true", serial = "false")
+	@Method("Get")
+	@Path("limited")
+	public RestResponse GetLimited() throws InterruptedException
+	{
+		// Shorter than the idle timeout of the servers, or the connection is closed under the admitted call
+		Thread.sleep(500);
+		
+		return new RestResponse("admitted");
+	}
+	
+	@Cache("60")
+	@Method("Get")
+	@Path("cached")
+	public RestResponse GetCached()
+	{
+		return new RestResponse("computed " + computed.incrementAndGet());
+	}
+	
+	@Coalesce
+	@Blocking(value = "true", serial = "false")
+	@Method("Get")
+	@Path("popular")
+	public RestResponse GetPopular() throws InterruptedException
+	{
+		// Long enough for the herd to pile up behind this call
+		Thread.sleep(500);
+		
+		return new RestResponse("call " + popularCalls.incrementAndGet());
+	}
+}
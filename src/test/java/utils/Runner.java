@@ -19,6 +19,9 @@ public class Runner {
 
   public static void runExample(Class clazz) {
     ExampleRunner.runJavaExample(WEB_EXAMPLES_JAVA_DIR, clazz, false);
+
+    // The verticle is deployed asynchronously, don't let the tests start before it's listening
+    TestUtility.waitForServer(TestUtility.PORT);
   }
 
   public static void runExample(Class clazz, DeploymentOptions options) {
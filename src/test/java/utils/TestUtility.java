@@ -4,6 +4,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.net.Socket;
 import java.net.URL;
 
 import org.apache.http.client.fluent.Content;
@@ -20,6 +21,31 @@ import tests.models.Choir;
 
 public class TestUtility {
 	
+	public static final int PORT = 3030;
+	
+	/**
+	 * Waits (up to 10 seconds) until something is listening on the port
+	 * 
+	 * @param port
+	 */
+	public static void waitForServer(int port)
+	{
+		long deadline = System.currentTimeMillis() + 10000;
+		
+		while (System.currentTimeMillis() < deadline) {
+			try (Socket socket = new Socket("localhost", port)) {
+				return;
+			} catch (IOException e) {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e1) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+	
 	public static String post(String location)
 	{		
 		Content result = null;
@@ -68,6 +94,20 @@ public class TestUtility {
 		return (result == null) ? null : result;
 	}
 	
+	public static Response getGetResponse(String location)
+	{		
+		Response result = null;
+		
+		try {
+			result = Request.Get(location)
+				    .execute();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		
+		return result;
+	}
+	
 	public static String get(String location)
 	{		
 		Content result = null;